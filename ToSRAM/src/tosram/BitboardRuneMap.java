@@ -0,0 +1,313 @@
+package tosram;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A mutable matrix of rune stones represented as a <code>long</code> bitmask
+ * per kind of stones; stones not in any bitmask are
+ * {@link RuneStone#UNKNOWN}. The stone at <code>(x, y)</code> is the bit
+ * <code>y * (width + 1) + x</code>, leaving a column of padding bits which are
+ * always zero. Hence it can only handle maps satisfying
+ * <code>(width + 1) * height - 1 &lt;= 64</code>. Width and height cannot be
+ * changed.
+ * <p>
+ * A {@link Zobrist} hash of the content is maintained on every modification.
+ *
+ * @see MutableRuneMap
+ * @author johnchen902
+ */
+public final class BitboardRuneMap {
+
+	private static final RuneStone[] STONES = RuneStone.values();
+	private static final int KINDS = RuneStone.UNKNOWN.ordinal();
+
+	private final int width, height;
+	private final long[] masks;
+	private final long[] keys;
+	private long hash;
+
+	/**
+	 * Determines whether maps of the specified size can be represented.
+	 *
+	 * @param w
+	 *            the width
+	 * @param h
+	 *            the height
+	 * @return <code>true</code> if <code>(w + 1) * h - 1 &lt;= 64</code>;
+	 *         <code>false</code> otherwise
+	 */
+	public static boolean canHandle(int w, int h) {
+		return (w + 1) * h - 1 <= Long.SIZE;
+	}
+
+	/**
+	 * Create a BitboardRuneMap of unknown stones with specified size.
+	 *
+	 * @param w
+	 *            its width
+	 * @param h
+	 *            its height
+	 * @throws IllegalArgumentException
+	 *             if <code>(w + 1) * h - 1 &gt; 64</code>
+	 */
+	public BitboardRuneMap(int w, int h) {
+		if (w <= 0)
+			throw new IllegalArgumentException("width <= 0");
+		if (h <= 0)
+			throw new IllegalArgumentException("height <= 0");
+		if (!canHandle(w, h))
+			throw new IllegalArgumentException("Cannot handle map with size "
+					+ w + " x " + h);
+		width = w;
+		height = h;
+		masks = new long[KINDS];
+		keys = Zobrist.bitKeys(w);
+	}
+
+	/**
+	 * Create a BitboardRuneMap with copied content from <code>that</code>.
+	 *
+	 * @param that
+	 *            the BitboardRuneMap to copy from
+	 */
+	public BitboardRuneMap(BitboardRuneMap that) {
+		this.width = that.width;
+		this.height = that.height;
+		this.masks = that.masks.clone();
+		this.keys = that.keys;
+		this.hash = that.hash;
+	}
+
+	/**
+	 * Create a BitboardRuneMap with copied content from a
+	 * <code>MutableRuneMap</code>.
+	 *
+	 * @param that
+	 *            the MutableRuneMap to copy from
+	 * @throws IllegalArgumentException
+	 *             if <code>(width + 1) * height - 1 &gt; 64</code>
+	 */
+	public BitboardRuneMap(MutableRuneMap that) {
+		this(that.getWidth(), that.getHeight());
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				setRuneStone(x, y, that.getRuneStone(x, y));
+	}
+
+	/**
+	 * Create a BitboardRuneMap with copied content from a <code>RuneMap</code>.
+	 *
+	 * @param that
+	 *            the RuneMap to copy from
+	 * @throws IllegalArgumentException
+	 *             if <code>(width + 1) * height - 1 &gt; 64</code>
+	 */
+	public BitboardRuneMap(RuneMap that) {
+		this(that.getWidth(), that.getHeight());
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				setRuneStone(x, y, that.getRuneStone(x, y));
+	}
+
+	/**
+	 * Returns the width of this BitboardRuneMap.
+	 *
+	 * @return the width of this BitboardRuneMap
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of this BitboardRuneMap.
+	 *
+	 * @return the height of this BitboardRuneMap
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the Zobrist hash of the content of this BitboardRuneMap, which is
+	 * the same as other kinds of maps with the same content.
+	 *
+	 * @return the Zobrist hash
+	 * @see Zobrist
+	 */
+	public long getZobristHash() {
+		return hash;
+	}
+
+	/**
+	 * Returns the bit of the specified location. No range check is performed.
+	 *
+	 * @param x
+	 *            the X coordinate of the specified location
+	 * @param y
+	 *            the Y coordinate of the specified location
+	 * @return the bit of the location
+	 */
+	public long getBit(int x, int y) {
+		return 1L << (y * (width + 1) + x);
+	}
+
+	/**
+	 * Returns the bitmask of the specified kind of stones.
+	 *
+	 * @param stone
+	 *            the kind of stones; not {@link RuneStone#UNKNOWN}
+	 * @return the bitmask of the stones
+	 * @throws IllegalArgumentException
+	 *             if <code>stone</code> is {@link RuneStone#UNKNOWN}
+	 */
+	public long getMask(RuneStone stone) {
+		if (stone == RuneStone.UNKNOWN)
+			throw new IllegalArgumentException("UNKNOWN");
+		return masks[stone.ordinal()];
+	}
+
+	/**
+	 * Returns the RuneStone at location {@code (x, y)}.
+	 *
+	 * @param x
+	 *            the X coordinate of the specified location
+	 * @param y
+	 *            the Y coordinate of the specified location
+	 * @return a {@code RuneStone}
+	 */
+	public RuneStone getRuneStone(int x, int y) {
+		if (!isInRange(x, y))
+			throw new IndexOutOfBoundsException();
+		long bit = getBit(x, y);
+		for (int i = 0; i < KINDS; i++)
+			if ((masks[i] & bit) != 0)
+				return STONES[i];
+		return RuneStone.UNKNOWN;
+	}
+
+	/**
+	 * Set the RuneStone at location {@code (x, y)} to {@code r}.
+	 *
+	 * @param x
+	 *            the X coordinate of the specified location
+	 * @param y
+	 *            the Y coordinate of the specified location
+	 * @param r
+	 *            a {@code RuneStone}
+	 */
+	public void setRuneStone(int x, int y, RuneStone r) {
+		Objects.requireNonNull(r);
+		if (!isInRange(x, y))
+			throw new IndexOutOfBoundsException();
+		int pos = y * (width + 1) + x;
+		long bit = 1L << pos;
+		for (int i = 0; i < KINDS; i++) {
+			if ((masks[i] & bit) != 0) {
+				masks[i] &= ~bit;
+				hash ^= keys[pos * KINDS + i];
+			}
+		}
+		if (r != RuneStone.UNKNOWN) {
+			masks[r.ordinal()] |= bit;
+			hash ^= keys[pos * KINDS + r.ordinal()];
+		}
+	}
+
+	/**
+	 * Checks if the specified location is in valid range of this
+	 * <code>BitboardRuneMap</code>.
+	 *
+	 * @param x
+	 *            the X coordinate of the specified location
+	 * @param y
+	 *            the Y coordinate of the specified location
+	 * @return <code>true</code> if in range; <code>false</code> otherwise
+	 */
+	public boolean isInRange(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	/**
+	 * Swap two stone at the specific locations. No range check is performed.
+	 *
+	 * @param x1
+	 *            the X coordinate of the first stone
+	 * @param y1
+	 *            the Y coordinate of the first stone
+	 * @param x2
+	 *            the X coordinate of the second stone
+	 * @param y2
+	 *            the Y coordinate of the second stone
+	 */
+	public void swap(int x1, int y1, int x2, int y2) {
+		int pos1 = y1 * (width + 1) + x1, pos2 = y2 * (width + 1) + x2;
+		long bit1 = 1L << pos1, bit2 = 1L << pos2, both = bit1 | bit2;
+		for (int i = 0; i < KINDS; i++) {
+			long mask = masks[i];
+			// exactly one of them is of this kind
+			if (((mask & bit1) == 0) != ((mask & bit2) == 0)) {
+				masks[i] = mask ^ both;
+				hash ^= keys[pos1 * KINDS + i] ^ keys[pos2 * KINDS + i];
+			}
+		}
+	}
+
+	/**
+	 * Copy the content of <code>that</code> into this map, without
+	 * allocating.
+	 *
+	 * @param that
+	 *            the BitboardRuneMap to copy from
+	 * @throws IllegalArgumentException
+	 *             if the sizes are different
+	 */
+	public void copyFrom(BitboardRuneMap that) {
+		if (this.width != that.width || this.height != that.height)
+			throw new IllegalArgumentException("Size mismatch");
+		System.arraycopy(that.masks, 0, masks, 0, KINDS);
+		hash = that.hash;
+	}
+
+	/**
+	 * Make a <code>MutableRuneMap</code> from this <code>BitboardRuneMap</code>
+	 *
+	 * @return a <code>MutableRuneMap</code>
+	 */
+	public MutableRuneMap toMutable() {
+		MutableRuneMap mutable = new MutableRuneMap(width, height);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				mutable.setRuneStone(x, y, getRuneStone(x, y));
+		return mutable;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof BitboardRuneMap))
+			return false;
+		BitboardRuneMap that = (BitboardRuneMap) obj;
+		return this.width == that.width && this.height == that.height
+				&& Arrays.equals(this.masks, that.masks);
+	}
+
+	@Override
+	public int hashCode() {
+		int h = 17;
+		h = h * 31 + width;
+		h = h * 31 + height;
+		h = h * 31 + Arrays.hashCode(masks);
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++)
+				sb.append(getRuneStone(x, y)).append(' ');
+			sb.deleteCharAt(sb.length() - 1).append('/');
+		}
+		return sb.deleteCharAt(sb.length() - 1).toString();
+	}
+}
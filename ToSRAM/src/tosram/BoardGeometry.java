@@ -0,0 +1,180 @@
+package tosram;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Precomputed moves of maps of a certain size. For every location, the moves
+ * staying in range are listed in the order of {@link Direction#values()},
+ * each packed into an <code>int</code> as the direction and the resulting
+ * location, so searching algorithms iterate flat arrays instead of calling
+ * {@link Direction#getX()}, {@link Direction#getY()} and
+ * <code>isInRange</code> on every move. Instances are cached and shared.
+ *
+ * @author johnchen902
+ */
+public final class BoardGeometry {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int MAX_SIZE = 1 << 12;
+	private static final ConcurrentMap<Integer, BoardGeometry> CACHE = new ConcurrentHashMap<>();
+
+	private final int width, height;
+	private final int[][] moves, orthogonalMoves;
+
+	/**
+	 * Returns the geometry of maps of the specified size.
+	 *
+	 * @param width
+	 *            the width
+	 * @param height
+	 *            the height
+	 * @return the geometry
+	 * @throws IllegalArgumentException
+	 *             if <code>width</code> or <code>height</code> is not in
+	 *             <code>[1, 4096)</code>
+	 */
+	public static BoardGeometry of(int width, int height) {
+		if (width <= 0 || width >= MAX_SIZE)
+			throw new IllegalArgumentException("width=" + width);
+		if (height <= 0 || height >= MAX_SIZE)
+			throw new IllegalArgumentException("height=" + height);
+		return CACHE.computeIfAbsent(width * MAX_SIZE + height,
+				k -> new BoardGeometry(width, height));
+	}
+
+	private BoardGeometry(int width, int height) {
+		this.width = width;
+		this.height = height;
+		moves = new int[width * height][];
+		orthogonalMoves = new int[width * height][];
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++) {
+				int[] all = new int[DIRECTIONS.length];
+				int[] orthogonal = new int[DIRECTIONS.length];
+				int count = 0, orthogonalCount = 0;
+				for (Direction d : DIRECTIONS) {
+					int x2 = x + d.getX(), y2 = y + d.getY();
+					if (x2 < 0 || x2 >= width || y2 < 0 || y2 >= height)
+						continue;
+					int move = d.ordinal() | x2 << 3 | y2 << 15;
+					all[count++] = move;
+					if (!d.isDiagonal())
+						orthogonal[orthogonalCount++] = move;
+				}
+				moves[y * width + x] = Arrays.copyOf(all, count);
+				orthogonalMoves[y * width + x] = Arrays.copyOf(
+						orthogonal, orthogonalCount);
+			}
+	}
+
+	/**
+	 * Returns the width of the maps.
+	 *
+	 * @return the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the maps.
+	 *
+	 * @return the height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the moves from the specified location staying in range,
+	 * including diagonal ones. The array must not be modified.
+	 *
+	 * @param x
+	 *            the X coordinate of the location
+	 * @param y
+	 *            the Y coordinate of the location
+	 * @return the packed moves
+	 * @see #direction(int)
+	 * @see #x(int)
+	 * @see #y(int)
+	 */
+	public int[] getMoves(int x, int y) {
+		return moves[y * width + x];
+	}
+
+	/**
+	 * Returns the moves from the specified location staying in range,
+	 * including diagonal ones only if specified. The array must not be
+	 * modified.
+	 *
+	 * @param x
+	 *            the X coordinate of the location
+	 * @param y
+	 *            the Y coordinate of the location
+	 * @param diagonal
+	 *            whether to include diagonal moves
+	 * @return the packed moves
+	 * @see #getMoves(int, int)
+	 * @see #getOrthogonalMoves(int, int)
+	 */
+	public int[] getMoves(int x, int y, boolean diagonal) {
+		return diagonal ? moves[y * width + x] : orthogonalMoves[y * width + x];
+	}
+
+	/**
+	 * Returns the moves from the specified location staying in range,
+	 * excluding diagonal ones. The array must not be modified.
+	 *
+	 * @param x
+	 *            the X coordinate of the location
+	 * @param y
+	 *            the Y coordinate of the location
+	 * @return the packed moves
+	 * @see #direction(int)
+	 * @see #x(int)
+	 * @see #y(int)
+	 */
+	public int[] getOrthogonalMoves(int x, int y) {
+		return orthogonalMoves[y * width + x];
+	}
+
+	/**
+	 * Returns the direction of a packed move.
+	 *
+	 * @param move
+	 *            the packed move
+	 * @return the direction
+	 */
+	public static Direction direction(int move) {
+		return DIRECTIONS[move & 7];
+	}
+
+	/**
+	 * Returns the X coordinate of the resulting location of a packed move.
+	 *
+	 * @param move
+	 *            the packed move
+	 * @return the X coordinate
+	 */
+	public static int x(int move) {
+		return move >>> 3 & (MAX_SIZE - 1);
+	}
+
+	/**
+	 * Returns the Y coordinate of the resulting location of a packed move.
+	 *
+	 * @param move
+	 *            the packed move
+	 * @return the Y coordinate
+	 */
+	public static int y(int move) {
+		return move >>> 15;
+	}
+
+	@Override
+	public String toString() {
+		return "BoardGeometry[" + width + " x " + height + "]";
+	}
+}
@@ -80,6 +80,38 @@ public enum Direction {
 		throw new AssertionError(this);
 	}
 
+	/**
+	 * Returns the direction mirrored left to right.
+	 * <ul>
+	 * <li>{@link #WEST} &lt;--&gt; {@link #EAST}</li>
+	 * <li>{@link #WEST_SOUTH} &lt;--&gt; {@link #EAST_SOUTH}</li>
+	 * <li>{@link #WEST_NORTH} &lt;--&gt; {@link #EAST_NORTH}</li>
+	 * <li>{@link #NORTH} and {@link #SOUTH} are unchanged</li>
+	 * </ul>
+	 *
+	 * @return the mirrored direction
+	 */
+	public Direction getHorizontalMirror() {
+		switch (this) {
+		case WEST:
+			return EAST;
+		case EAST:
+			return WEST;
+		case NORTH:
+		case SOUTH:
+			return this;
+		case WEST_SOUTH:
+			return EAST_SOUTH;
+		case WEST_NORTH:
+			return EAST_NORTH;
+		case EAST_SOUTH:
+			return WEST_SOUTH;
+		case EAST_NORTH:
+			return WEST_NORTH;
+		}
+		throw new AssertionError(this);
+	}
+
 	/**
 	 * Get the difference of X coordinate implied by this direction.
 	 * <ul>
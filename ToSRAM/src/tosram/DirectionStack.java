@@ -0,0 +1,138 @@
+package tosram;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A stack of directions packed three bits each into <code>long</code>, for
+ * searching algorithms to push and pop moves without creating objects. It is
+ * also a read-only <code>List</code> of the directions from the bottom to the
+ * top, so it can be passed to whatever accepts a path in progress.
+ *
+ * @see Path
+ * @author johnchen902
+ */
+public final class DirectionStack extends AbstractList<Direction> implements
+		RandomAccess {
+
+	/*
+	 * The number of directions in a long.
+	 */
+	static final int PER_WORD = Long.SIZE / 3;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private long[] words;
+	private int size;
+
+	/**
+	 * Create an empty stack.
+	 */
+	public DirectionStack() {
+		words = new long[2];
+	}
+
+	/**
+	 * Create a stack with the same directions as <code>that</code>.
+	 *
+	 * @param that
+	 *            the stack to copy from
+	 */
+	public DirectionStack(DirectionStack that) {
+		this.words = that.words.clone();
+		this.size = that.size;
+	}
+
+	/**
+	 * Push a direction onto the top of this stack.
+	 *
+	 * @param direction
+	 *            the direction to push
+	 */
+	public void push(Direction direction) {
+		Objects.requireNonNull(direction);
+		int word = size / PER_WORD;
+		if (word == words.length)
+			words = Arrays.copyOf(words, words.length * 2);
+		words[word] |= (long) direction.ordinal() << (size % PER_WORD * 3);
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Remove the direction on the top of this stack.
+	 *
+	 * @return the direction removed
+	 * @throws IllegalStateException
+	 *             if this stack is empty
+	 */
+	public Direction pop() {
+		if (size == 0)
+			throw new IllegalStateException("Empty stack");
+		size--;
+		modCount++;
+		int word = size / PER_WORD, shift = size % PER_WORD * 3;
+		int ordinal = (int) (words[word] >>> shift) & 7;
+		words[word] &= ~(7L << shift);
+		return DIRECTIONS[ordinal];
+	}
+
+	/**
+	 * Returns the direction on the top of this stack.
+	 *
+	 * @return the direction on the top; <code>null</code> if empty
+	 */
+	public Direction peek() {
+		return size == 0 ? null : get(size - 1);
+	}
+
+	@Override
+	public Direction get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("index=" + index);
+		return get(words, index);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(words, 0L);
+		size = 0;
+		modCount++;
+	}
+
+	/*
+	 * A copy of the packed directions just long enough; bits beyond size are
+	 * always zero.
+	 */
+	long[] toWords() {
+		return Arrays.copyOf(words, (size + PER_WORD - 1) / PER_WORD);
+	}
+
+	/*
+	 * Unpack the direction at the specified index.
+	 */
+	static Direction get(long[] words, int index) {
+		return DIRECTIONS[(int) (words[index / PER_WORD] >>> (index
+				% PER_WORD * 3)) & 7];
+	}
+
+	/*
+	 * Pack the specified directions.
+	 */
+	static long[] pack(Iterable<Direction> directions, int size) {
+		long[] words = new long[(size + PER_WORD - 1) / PER_WORD];
+		int i = 0;
+		for (Direction d : directions) {
+			words[i / PER_WORD] |= (long) d.ordinal() << (i % PER_WORD * 3);
+			i++;
+		}
+		return words;
+	}
+}
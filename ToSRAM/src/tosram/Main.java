@@ -1,7 +1,12 @@
 package tosram;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 import javax.swing.SwingUtilities;
 
+import tosram.cli.BatchSolver;
+import tosram.server.SolverServer;
 import tosram.view.MainFrame;
 
 /**
@@ -15,9 +20,17 @@ public class Main {
 	}
 
 	/**
-	 * Simply <code>main</code>.
+	 * Simply <code>main</code>. Run {@link BatchSolver} without GUI if the first
+	 * argument is <code>--batch</code>, or {@link SolverServer} if
+	 * <code>--server</code>, with the rest of arguments.
 	 */
-	public static void main(String[] args) {
-		SwingUtilities.invokeLater(MainFrame::new);
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		if (args.length > 0 && args[0].equals("--batch"))
+			BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+		else if (args.length > 0 && args[0].equals("--server"))
+			SolverServer.main(Arrays.copyOfRange(args, 1, args.length));
+		else
+			SwingUtilities.invokeLater(MainFrame::new);
 	}
 }
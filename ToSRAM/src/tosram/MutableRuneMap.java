@@ -6,6 +6,8 @@ import java.util.stream.Stream;
 
 /**
  * A mutable matrix of rune stones. However, width and height cannot be changed.
+ * <p>
+ * A {@link Zobrist} hash of the content is maintained on every modification.
  * 
  * @see RuneMap
  * @author johnchen902
@@ -13,6 +15,7 @@ import java.util.stream.Stream;
 public class MutableRuneMap {
 	private final int width, height;
 	private final RuneStone[] stones;
+	private long hash;
 
 	/**
 	 * Create an empty MutableRuneMap with specified size.
@@ -43,6 +46,7 @@ public class MutableRuneMap {
 		this.width = that.width;
 		this.height = that.height;
 		this.stones = Arrays.copyOf(that.stones, that.stones.length);
+		this.hash = that.hash;
 	}
 
 	/**
@@ -63,6 +67,17 @@ public class MutableRuneMap {
 		return height;
 	}
 
+	/**
+	 * Returns the Zobrist hash of the content of this MutableRuneMap, which is
+	 * the same as other kinds of maps with the same content.
+	 * 
+	 * @return the Zobrist hash
+	 * @see Zobrist
+	 */
+	public final long getZobristHash() {
+		return hash;
+	}
+
 	/**
 	 * Returns the RuneStone at location {@code (x, y)}.
 	 * 
@@ -91,7 +106,10 @@ public class MutableRuneMap {
 	public final void setRuneStone(int x, int y, RuneStone r) {
 		if (!isInRange(x, y))
 			throw new IndexOutOfBoundsException();
-		stones[y * width + x] = Objects.requireNonNull(r);
+		Objects.requireNonNull(r);
+		int index = y * width + x;
+		hash ^= Zobrist.key(x, y, stones[index]) ^ Zobrist.key(x, y, r);
+		stones[index] = r;
 	}
 
 	/**
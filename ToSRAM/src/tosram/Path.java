@@ -1,23 +1,31 @@
 package tosram;
 
 import java.awt.Point;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Path, a starting point and a sequence of directions, representing moves made
  * to a rune map. Guaranteed to be immutable.
+ * <p>
+ * The starting point is packed into an <code>int</code> and the directions
+ * three bits each into <code>long</code>, as a {@link DirectionStack} does, so
+ * a path can be made from a stack with a single array copy.
  * 
  * @author johnchen902
  */
 public final class Path {
 
-	private final Point beginPoint;
-	private final List<Direction> directions;
+	/*
+	 * x << 16 | y, both as unsigned 16-bit integers.
+	 */
+	private final int begin;
+	private final long[] words;
+	private final int size;
+	private final List<Direction> directions = new DirectionList();
 
 	/**
 	 * Constructs a path starting from the specified point and moving toward
@@ -29,11 +37,45 @@ public final class Path {
 	 *            the list of directions moving toward
 	 * @throws NullPointerException
 	 *             if either argument is <code>null</code>
+	 * @throws IllegalArgumentException
+	 *             if a coordinate of <code>point</code> is not in
+	 *             <code>[0, 65535]</code>
 	 */
 	public Path(Point point, Collection<Direction> list) {
-		this.beginPoint = new Point(point);
-		this.directions = Collections
-				.unmodifiableList(new ArrayList<Direction>(list));
+		this.begin = packPoint(point.x, point.y);
+		if (list instanceof DirectionStack) {
+			DirectionStack stack = (DirectionStack) list;
+			this.words = stack.toWords();
+			this.size = stack.size();
+		} else {
+			this.size = list.size();
+			this.words = DirectionStack.pack(list, size);
+		}
+	}
+
+	/**
+	 * Constructs a path starting from the specified point and moving toward
+	 * directions in the stack, from the bottom to the top.
+	 * 
+	 * @param x
+	 *            the X coordinate of the point the path starts with
+	 * @param y
+	 *            the Y coordinate of the point the path starts with
+	 * @param stack
+	 *            the directions moving toward
+	 * @throws IllegalArgumentException
+	 *             if a coordinate is not in <code>[0, 65535]</code>
+	 */
+	public Path(int x, int y, DirectionStack stack) {
+		this.begin = packPoint(x, y);
+		this.words = stack.toWords();
+		this.size = stack.size();
+	}
+
+	private static int packPoint(int x, int y) {
+		if ((x & ~0xffff) != 0 || (y & ~0xffff) != 0)
+			throw new IllegalArgumentException("(" + x + ", " + y + ")");
+		return x << 16 | y;
 	}
 
 	/**
@@ -42,11 +84,30 @@ public final class Path {
 	 * @return the starting point
 	 */
 	public Point getBeginPoint() {
-		return new Point(beginPoint);
+		return new Point(getBeginX(), getBeginY());
+	}
+
+	/**
+	 * The X coordinate of the starting point of the path.
+	 * 
+	 * @return the X coordinate of the starting point
+	 */
+	public int getBeginX() {
+		return begin >>> 16;
+	}
+
+	/**
+	 * The Y coordinate of the starting point of the path.
+	 * 
+	 * @return the Y coordinate of the starting point
+	 */
+	public int getBeginY() {
+		return begin & 0xffff;
 	}
 
 	/**
-	 * Get directions of the path.
+	 * Get directions of the path. The list is a read-only view of the path;
+	 * nothing is copied.
 	 * 
 	 * @return the directions
 	 */
@@ -64,22 +125,22 @@ public final class Path {
 		if (!(obj instanceof Path))
 			return false;
 		Path that = (Path) obj;
-		return beginPoint.equals(that.beginPoint)
-				&& directions.equals(that.directions);
+		return begin == that.begin && size == that.size
+				&& Arrays.equals(words, that.words);
 	}
 
 	@Override
 	public int hashCode() {
 		int hash = 17;
-		hash = hash * 31 + directions.hashCode();
-		hash = hash * 31 + beginPoint.hashCode();
+		hash = hash * 31 + Arrays.hashCode(words);
+		hash = hash * 31 + size;
+		hash = hash * 31 + begin;
 		return hash;
 	}
 
 	@Override
 	public String toString() {
-		return "Path[point=" + beginPoint + ", path="
-				+ Arrays.toString(directions.toArray()) + "]";
+		return "Path[point=" + getBeginPoint() + ", path=" + directions + "]";
 	}
 
 	/**
@@ -111,12 +172,29 @@ public final class Path {
 		if (steps < 0 || steps > path.getDirections().size())
 			throw new IndexOutOfBoundsException("steps=" + steps);
 		MutableRuneMap newMap = map.toMutable();
-		int x = path.getBeginPoint().x, y = path.getBeginPoint().y;
-		Iterator<Direction> ite = path.getDirections().iterator();
-		while (steps-- != 0) {
-			Direction dir = ite.next();
+		int x = path.getBeginX(), y = path.getBeginY();
+		for (int i = 0; i < steps; i++) {
+			Direction dir = DirectionStack.get(path.words, i);
 			newMap.swap(x, y, x += dir.getX(), y += dir.getY());
 		}
 		return new RuneMap(newMap);
 	}
+
+	/*
+	 * The read-only view of the directions; indexing is constant-time.
+	 */
+	private final class DirectionList extends AbstractList<Direction>
+			implements RandomAccess {
+		@Override
+		public Direction get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("index=" + index);
+			return DirectionStack.get(words, index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
 }
@@ -5,6 +5,9 @@ import java.util.stream.Stream;
 
 /**
  * An immutable matrix of rune stones.
+ * <p>
+ * The {@link Zobrist} hash of the content is carried over from the
+ * <code>MutableRuneMap</code> it is constructed from.
  * 
  * @see MutableRuneMap
  * @author johnchen902
@@ -12,6 +15,7 @@ import java.util.stream.Stream;
 public final class RuneMap {
 	private final int width, height;
 	private final RuneStone[] stones;
+	private final long hash;
 
 	/**
 	 * Construct a <code>RuneMap</code> from a <code>MutableRuneMap</code>
@@ -26,6 +30,7 @@ public final class RuneMap {
 		for (int y = 0; y < height; y++)
 			for (int x = 0; x < width; x++)
 				stones[y * width + x] = mutable.getRuneStone(x, y);
+		this.hash = mutable.getZobristHash();
 	}
 
 	/**
@@ -46,6 +51,17 @@ public final class RuneMap {
 		return height;
 	}
 
+	/**
+	 * Returns the Zobrist hash of the content of this map, which is the same as
+	 * other kinds of maps with the same content.
+	 * 
+	 * @return the Zobrist hash
+	 * @see Zobrist
+	 */
+	public long getZobristHash() {
+		return hash;
+	}
+
 	/**
 	 * Returns the stone at {@code (x, y)}.
 	 * 
@@ -111,10 +127,26 @@ public final class RuneMap {
 		int h = 17;
 		h = h * 31 + width;
 		h = h * 31 + height;
-		h = h * 31 + Arrays.hashCode(stones);
+		h = h * 31 + Long.hashCode(hash);
 		return h;
 	}
 
+	/**
+	 * Parse a <code>RuneMap</code> in the format of {@link #toString()}: rows
+	 * separated by <code>'/'</code>, each of which are names of
+	 * {@link RuneStone} separated by spaces. Delegate
+	 * {@link RuneMapCodec#parse(String)}.
+	 * 
+	 * @param text
+	 *            the text to parse
+	 * @return the parsed <code>RuneMap</code>
+	 * @throws IllegalArgumentException
+	 *             if <code>text</code> is malformed
+	 */
+	public static RuneMap parse(String text) {
+		return RuneMapCodec.parse(text);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
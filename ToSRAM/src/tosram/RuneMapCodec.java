@@ -0,0 +1,221 @@
+package tosram;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compact binary and fast text encoding of <code>RuneMap</code>.
+ * <p>
+ * The binary form is the width and the height as unsigned 16-bit big-endian
+ * integers, followed by the ordinals of the stones in row-major order, three
+ * bits each, packed from the least significant bit of each byte; a 6 x 5 map
+ * takes 16 bytes. It is read from and written to a <code>ByteBuffer</code> in
+ * place, so it may be used directly on mapped files and network buffers.
+ * <p>
+ * The text form is that of {@link RuneMap#toString()}.
+ *
+ * @author johnchen902
+ */
+public final class RuneMapCodec {
+
+	private static final RuneStone[] STONES = RuneStone.values();
+	private static final int BITS = 3;
+	private static final int MAX_SIZE = 0xFFFF;
+
+	private RuneMapCodec() {
+	}
+
+	/**
+	 * Returns the number of bytes encoding a map of the specified size.
+	 *
+	 * @param width
+	 *            the width of the map
+	 * @param height
+	 *            the height of the map
+	 * @return the number of bytes
+	 */
+	public static int encodedLength(int width, int height) {
+		return 4 + (int) (((long) width * height * BITS + 7) / 8);
+	}
+
+	/**
+	 * Write the binary form of a map at the position of the buffer, advancing
+	 * the position. Nothing is written if there is not enough space.
+	 *
+	 * @param map
+	 *            the map to write
+	 * @param out
+	 *            the buffer to write to
+	 * @throws BufferOverflowException
+	 *             if there is not enough space remaining in <code>out</code>
+	 * @throws IllegalArgumentException
+	 *             if the width or the height is greater than
+	 *             <code>65535</code>
+	 */
+	public static void write(RuneMap map, ByteBuffer out) {
+		int width = map.getWidth(), height = map.getHeight();
+		if (width > MAX_SIZE || height > MAX_SIZE)
+			throw new IllegalArgumentException("Too large: " + width + " x "
+					+ height);
+		if (out.remaining() < encodedLength(width, height))
+			throw new BufferOverflowException();
+		out.putShort((short) width).putShort((short) height);
+		long bits = 0;
+		int count = 0;
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++) {
+				bits |= (long) map.getRuneStone(x, y).ordinal() << count;
+				count += BITS;
+				if (count >= 8) {
+					out.put((byte) bits);
+					bits >>>= 8;
+					count -= 8;
+				}
+			}
+		if (count > 0)
+			out.put((byte) bits);
+	}
+
+	/**
+	 * Read a map in the binary form at the position of the buffer, advancing
+	 * the position.
+	 *
+	 * @param in
+	 *            the buffer to read from
+	 * @return the map read
+	 * @throws BufferUnderflowException
+	 *             if the map is truncated
+	 * @throws IllegalArgumentException
+	 *             if the size or any stone is invalid
+	 */
+	public static RuneMap read(ByteBuffer in) {
+		int width = in.getShort() & MAX_SIZE, height = in.getShort() & MAX_SIZE;
+		if (width == 0 || height == 0)
+			throw new IllegalArgumentException("Empty: " + width + " x "
+					+ height);
+		if (in.remaining() < encodedLength(width, height) - 4)
+			throw new BufferUnderflowException();
+		MutableRuneMap map = new MutableRuneMap(width, height);
+		long bits = 0;
+		int count = 0;
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++) {
+				if (count < BITS) {
+					bits |= (in.get() & 0xFFL) << count;
+					count += 8;
+				}
+				int ordinal = (int) bits & ((1 << BITS) - 1);
+				if (ordinal >= STONES.length)
+					throw new IllegalArgumentException("Invalid stone "
+							+ ordinal + " at (" + x + ", " + y + ")");
+				map.setRuneStone(x, y, STONES[ordinal]);
+				bits >>>= BITS;
+				count -= BITS;
+			}
+		return new RuneMap(map);
+	}
+
+	/**
+	 * Returns the binary form of a map.
+	 *
+	 * @param map
+	 *            the map to encode
+	 * @return a new array of the binary form
+	 * @throws IllegalArgumentException
+	 *             if the width or the height is greater than
+	 *             <code>65535</code>
+	 * @see #write(RuneMap, ByteBuffer)
+	 */
+	public static byte[] encode(RuneMap map) {
+		ByteBuffer buffer = ByteBuffer.allocate(encodedLength(map.getWidth(),
+				map.getHeight()));
+		write(map, buffer);
+		return buffer.array();
+	}
+
+	/**
+	 * Decode a map in the binary form.
+	 *
+	 * @param bytes
+	 *            the binary form
+	 * @return the map decoded
+	 * @throws IllegalArgumentException
+	 *             if <code>bytes</code> is malformed or has trailing bytes
+	 * @see #read(ByteBuffer)
+	 */
+	public static RuneMap decode(byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		RuneMap map;
+		try {
+			map = read(buffer);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated", e);
+		}
+		if (buffer.hasRemaining())
+			throw new IllegalArgumentException(buffer.remaining()
+					+ " trailing bytes");
+		return map;
+	}
+
+	/**
+	 * Parse a map in the text form: rows separated by <code>'/'</code>, each
+	 * of which are names of {@link RuneStone} separated by whitespace. Unlike
+	 * splitting with regular expressions, it makes no intermediate strings.
+	 *
+	 * @param text
+	 *            the text to parse
+	 * @return the map parsed
+	 * @throws IllegalArgumentException
+	 *             if <code>text</code> is malformed
+	 */
+	public static RuneMap parse(String text) {
+		byte[] ordinals = new byte[32];
+		int size = 0, width = -1, rowSize = 0, rows = 0;
+		int length = text.length();
+		for (int i = 0; i <= length; i++) {
+			char c = i == length ? '/' : text.charAt(i);
+			if (c == '/') {
+				if (width == -1)
+					width = rowSize;
+				else if (rowSize != width)
+					throw new IllegalArgumentException("Row " + rows + " has "
+							+ rowSize + " stones instead of " + width);
+				if (width == 0)
+					throw new IllegalArgumentException("Row " + rows
+							+ " is empty");
+				rows++;
+				rowSize = 0;
+			} else if (!Character.isWhitespace(c)) {
+				int end = i + 1;
+				while (end < length && text.charAt(end) != '/'
+						&& !Character.isWhitespace(text.charAt(end)))
+					end++;
+				if (size == ordinals.length)
+					ordinals = Arrays.copyOf(ordinals, size * 2);
+				ordinals[size++] = (byte) lookup(text, i, end);
+				rowSize++;
+				i = end - 1;
+			}
+		}
+		MutableRuneMap map = new MutableRuneMap(width, rows);
+		for (int i = 0; i < size; i++)
+			map.setRuneStone(i % width, i / width, STONES[ordinals[i]]);
+		return new RuneMap(map);
+	}
+
+	/*
+	 * The ordinal of the stone named text[begin, end).
+	 */
+	private static int lookup(String text, int begin, int end) {
+		for (RuneStone stone : STONES) {
+			String name = stone.name();
+			if (name.length() == end - begin
+					&& text.regionMatches(begin, name, 0, name.length()))
+				return stone.ordinal();
+		}
+		throw new IllegalArgumentException("Unknown stone: "
+				+ text.substring(begin, end));
+	}
+}
@@ -0,0 +1,95 @@
+package tosram;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keys for Zobrist hashing of rune maps. The hash of a map is the XOR of the
+ * keys of every stone at its location, so it can be updated in constant time
+ * when stones are moved. The keys only depend on the location and the stone,
+ * so maps of every kind with the same content have the same hash.
+ * {@link RuneStone#UNKNOWN} has key zero.
+ *
+ * @author johnchen902
+ */
+public final class Zobrist {
+
+	private static final int KINDS = RuneStone.UNKNOWN.ordinal();
+	private static final long SEED = 0x9e3779b97f4a7c15L;
+
+	/*
+	 * Keys indexed by bit * KINDS + kind in the layout of BitboardRuneMap, for
+	 * each width up to Long.SIZE (a map of one row); built on demand and
+	 * published through the atomic array, so that searchers in other threads
+	 * see them filled. Racy initialization is fine as the content is always
+	 * the same.
+	 */
+	private static final AtomicReferenceArray<long[]> BIT_KEYS = new AtomicReferenceArray<>(
+			Long.SIZE + 1);
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Returns the key of a stone at the specified location.
+	 *
+	 * @param x
+	 *            the X coordinate of the location
+	 * @param y
+	 *            the Y coordinate of the location
+	 * @param stone
+	 *            the stone
+	 * @return the key; zero if <code>stone</code> is
+	 *         {@link RuneStone#UNKNOWN}
+	 */
+	public static long key(int x, int y, RuneStone stone) {
+		if (stone == RuneStone.UNKNOWN)
+			return 0L;
+		return key(x, y, stone.ordinal());
+	}
+
+	/**
+	 * Returns the key of the cursor at the specified location, which has moved
+	 * toward the specified direction the last time. It can be combined with the
+	 * hash of a map to identify a state of searching.
+	 *
+	 * @param x
+	 *            the X coordinate of the cursor
+	 * @param y
+	 *            the Y coordinate of the cursor
+	 * @param last
+	 *            the last direction moved; <code>null</code> if not moved yet
+	 * @return the key
+	 */
+	public static long cursorKey(int x, int y, Direction last) {
+		return key(x, y, KINDS + 1 + (last == null ? 0 : 1 + last.ordinal()));
+	}
+
+	/*
+	 * The keys used by BitboardRuneMap of the specified width.
+	 */
+	static long[] bitKeys(int width) {
+		long[] keys = BIT_KEYS.get(width);
+		if (keys == null) {
+			keys = new long[Long.SIZE * KINDS];
+			for (int bit = 0; bit < Long.SIZE; bit++)
+				for (int kind = 0; kind < KINDS; kind++)
+					keys[bit * KINDS + kind] = key(bit % (width + 1), bit
+							/ (width + 1), kind);
+			BIT_KEYS.set(width, keys);
+		}
+		return keys;
+	}
+
+	private static long key(int x, int y, int kind) {
+		return mix(SEED + ((long) x << 40 | (long) y << 20 | kind));
+	}
+
+	/*
+	 * The finalizer of SplitMix64.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,9 +1,12 @@
 package tosram.algorithm;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 
+import tosram.BitboardRuneMap;
 import tosram.Direction;
 import tosram.MutableRuneMap;
 import tosram.Path;
@@ -21,7 +24,10 @@ public abstract class AbstractPathFinder implements PathFinder {
 	private ComboCounter comboCounter;
 	private PathRestriction pathRestriction;
 	private BiConsumer<Path, String> callBack;
-	private volatile boolean isRunning, shouldRun;
+	private final AtomicBoolean isRunning = new AtomicBoolean();
+	private volatile boolean optimal;
+	private volatile CancellationToken token;
+	private final SearchStatistics statistics = new SearchStatistics();
 
 	/**
 	 * Constructor specifying the {@link ComboCounter} and
@@ -40,23 +46,97 @@ public abstract class AbstractPathFinder implements PathFinder {
 
 	@Override
 	public void findPath(RuneMap initialMap, BiConsumer<Path, String> callBack) {
+		run(initialMap, new CancellationToken(), callBack);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The token is checked by {@link #isStopped()}, so no other thread is
+	 * involved. The same finder may run any number of searches one after
+	 * another, reusing what subclasses keep between them.
+	 */
+	@Override
+	public SearchResult findPath(RuneMap initialMap, CancellationToken token,
+			BiConsumer<Path, String> callBack) {
+		Objects.requireNonNull(callBack);
+		long start = System.nanoTime();
+		Object[] best = new Object[2];
+		boolean complete = run(initialMap, token, (path, description) -> {
+			best[0] = path;
+			best[1] = description;
+			callBack.accept(path, description);
+		});
+		return new SearchResult((Path) best[0], (String) best[1], complete,
+				complete && optimal, Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	/*
+	 * Returns whether the search ended without being stopped.
+	 */
+	private boolean run(RuneMap initialMap, CancellationToken token,
+			BiConsumer<Path, String> callBack) {
 		Objects.requireNonNull(initialMap);
+		Objects.requireNonNull(token);
 		Objects.requireNonNull(callBack);
-		if (isRunning)
+		if (!isRunning.compareAndSet(false, true))
 			throw new IllegalStateException("Already running");
 		this.callBack = callBack;
+		this.token = token;
+		this.optimal = false;
 		try {
-			isRunning = shouldRun = true;
+			statistics.start();
 			findPath(initialMap);
+			return !token.isCancelled();
 		} finally {
-			isRunning = false;
+			statistics.end();
+			isRunning.set(false);
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * It cancels the token of the running search.
+	 */
 	@Override
 	public void stop() {
-		if (isRunning)
-			shouldRun = false;
+		CancellationToken token = this.token;
+		if (isRunning.get() && token != null)
+			token.cancel();
+	}
+
+	/**
+	 * Returns the statistics of the running or the last search, which is reset
+	 * when a search starts. Subclasses should record into it via
+	 * {@link SearchStatistics#newRecorder()}.
+	 * 
+	 * @return the statistics
+	 */
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Determines whether the running or the last search has proved that no
+	 * better result can be found than the last one reported, for the
+	 * restriction and the criteria of the algorithm.
+	 * 
+	 * @return <code>true</code> if the result is proved optimal;
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isOptimal() {
+		return optimal;
+	}
+
+	/**
+	 * Call this when the search has proved that no better result can be found
+	 * than the last one reported.
+	 * 
+	 * @see #isOptimal()
+	 */
+	protected void optimal() {
+		optimal = true;
 	}
 
 	/**
@@ -80,13 +160,40 @@ public abstract class AbstractPathFinder implements PathFinder {
 	}
 
 	/**
-	 * Determines whether this algorithm has been stopped by user.
+	 * Determines whether the token of the running search has been cancelled,
+	 * by user or by its deadline. It reads the clock if the token has a
+	 * deadline; on every node, use {@link #isStopped(SearchStatistics.Recorder)}
+	 * instead.
 	 * 
-	 * @return <code>true</code> if has been stopped by user; <code>false</code>
-	 *         otherwise
+	 * @return <code>true</code> if cancelled; <code>false</code> otherwise
 	 */
 	protected boolean isStopped() {
-		return !shouldRun;
+		return token.isCancelled();
+	}
+
+	/**
+	 * The same as {@link #isStopped()}, but cheap enough to be called on every
+	 * node: a cancellation is seen at once, while the deadline is checked only
+	 * every {@value SearchStatistics.Recorder#POLL_PERIOD} calls with the same
+	 * recorder.
+	 * 
+	 * @param recorder
+	 *            the recorder of the searching thread
+	 * @return <code>true</code> if cancelled; <code>false</code> otherwise
+	 */
+	protected final boolean isStopped(SearchStatistics.Recorder recorder) {
+		CancellationToken token = this.token;
+		return recorder.poll() ? token.isCancelled() : token
+				.isCancelledAsKnown();
+	}
+
+	/**
+	 * Delegate {@link PathRestriction}. Please see the "See Also" for usage.
+	 * 
+	 * @see tosram.algorithm.PathRestriction#allowsDiagonalMoves()
+	 */
+	protected final boolean allowsDiagonalMoves() {
+		return pathRestriction.allowsDiagonalMoves();
 	}
 
 	/**
@@ -98,6 +205,58 @@ public abstract class AbstractPathFinder implements PathFinder {
 		return comboCounter.countCombo(map);
 	}
 
+	/**
+	 * Delegate {@link ComboCounter}. Please see the "See Also" for usage.
+	 * 
+	 * @see tosram.algorithm.ComboCounter#countCombo(tosram.BitboardRuneMap)
+	 */
+	protected final List<Combo> countCombo(BitboardRuneMap map) {
+		return comboCounter.countCombo(map);
+	}
+
+	/**
+	 * Delegate {@link ComboCounter}. Please see the "See Also" for usage.
+	 * 
+	 * @see tosram.algorithm.ComboCounter#countComboInto(tosram.BitboardRuneMap,
+	 *      ComboBuffer)
+	 */
+	protected final int countComboInto(BitboardRuneMap map, ComboBuffer buffer) {
+		return comboCounter.countComboInto(map, buffer);
+	}
+
+	/**
+	 * Delegate {@link ComboCounter}, recording the call into the recorder.
+	 * 
+	 * @param map
+	 *            the map to count combo of
+	 * @param buffer
+	 *            the buffer to receive the combo
+	 * @param recorder
+	 *            the recorder of the searching thread
+	 * @return the number of combo
+	 * @see SearchStatistics.Recorder#countComboInto(ComboCounter,
+	 *      BitboardRuneMap, ComboBuffer)
+	 */
+	protected final int countComboInto(BitboardRuneMap map, ComboBuffer buffer,
+			SearchStatistics.Recorder recorder) {
+		return recorder.countComboInto(comboCounter, map, buffer);
+	}
+
+	/**
+	 * Create an {@link IncrementalComboEvaluator} of the specified map counting
+	 * combo with the delegated {@link ComboCounter}.
+	 * 
+	 * @param map
+	 *            the map to evaluate
+	 * @param buffer
+	 *            the buffer to receive the combo
+	 * @return an <code>IncrementalComboEvaluator</code>
+	 */
+	protected final IncrementalComboEvaluator createComboEvaluator(
+			BitboardRuneMap map, ComboBuffer buffer) {
+		return new IncrementalComboEvaluator(comboCounter, map, buffer);
+	}
+
 	/**
 	 * Delegate {@link PathRestriction}. Please see the "See Also" for usage.
 	 * 
@@ -108,6 +267,16 @@ public abstract class AbstractPathFinder implements PathFinder {
 		return pathRestriction.canStart(stX, stY, map);
 	}
 
+	/**
+	 * Delegate {@link PathRestriction}. Please see the "See Also" for usage.
+	 * 
+	 * @see tosram.algorithm.PathRestriction#canStart(int, int,
+	 *      tosram.BitboardRuneMap)
+	 */
+	protected final boolean canStart(int stX, int stY, BitboardRuneMap map) {
+		return pathRestriction.canStart(stX, stY, map);
+	}
+
 	/**
 	 * Delegate {@link PathRestriction}. Please see the "See Also" for usage.
 	 * 
@@ -118,4 +287,15 @@ public abstract class AbstractPathFinder implements PathFinder {
 			Direction dir, int rsX, int rsY, MutableRuneMap map) {
 		return pathRestriction.canMove(stX, stY, dirs, dir, rsX, rsY, map);
 	}
+
+	/**
+	 * Delegate {@link PathRestriction}. Please see the "See Also" for usage.
+	 * 
+	 * @see tosram.algorithm.PathRestriction#canMove(int, int, java.util.List,
+	 *      tosram.Direction, int, int, tosram.BitboardRuneMap)
+	 */
+	protected final boolean canMove(int stX, int stY, List<Direction> dirs,
+			Direction dir, int rsX, int rsY, BitboardRuneMap map) {
+		return pathRestriction.canMove(stX, stY, dirs, dir, rsX, rsY, map);
+	}
 }
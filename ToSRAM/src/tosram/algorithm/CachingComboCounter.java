@@ -0,0 +1,191 @@
+package tosram.algorithm;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import tosram.BitboardRuneMap;
+import tosram.MutableRuneMap;
+import tosram.RuneStone;
+
+/**
+ * A {@link ComboCounter} remembering combo counted by another one, keyed by
+ * the {@link tosram.Zobrist Zobrist} hash of the map. It holds a bounded
+ * number of results and is safe to be shared by multiple threads.
+ * <p>
+ * Results are stored in sets of eight entries chosen by the hash. When a set
+ * is full, an entry is evicted by the CLOCK algorithm: entries used since the
+ * hand last passed are given a second chance. The content of the map is
+ * compared on lookup, so different maps with the same hash are never
+ * confused. Maps which cannot be represented as {@link BitboardRuneMap} are
+ * not cached.
+ *
+ * @author johnchen902
+ */
+public class CachingComboCounter implements ComboCounter {
+
+	private static final RuneStone[] STONES = RuneStone.values();
+	private static final int KINDS = RuneStone.UNKNOWN.ordinal();
+	private static final int WAYS = 8;
+
+	private static final class Entry {
+		private final long key;
+		private final long[] board;
+		private final ComboBuffer combo;
+		private volatile boolean referenced;
+
+		private Entry(long key, long[] board, ComboBuffer combo) {
+			this.key = key;
+			this.board = board;
+			this.combo = combo;
+		}
+	}
+
+	private final ComboCounter counter;
+	private final AtomicReferenceArray<Entry> entries;
+	private final AtomicIntegerArray hands;
+	private final int mask;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Create a cache in front of the specified counter.
+	 *
+	 * @param counter
+	 *            the counter to count combo not cached
+	 * @param capacity
+	 *            the maximum number of results cached; rounded down to a power
+	 *            of two no less than eight
+	 */
+	public CachingComboCounter(ComboCounter counter, int capacity) {
+		this.counter = Objects.requireNonNull(counter);
+		int size = Integer.highestOneBit(Math.max(WAYS, capacity));
+		this.entries = new AtomicReferenceArray<>(size);
+		this.hands = new AtomicIntegerArray(size / WAYS);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The map is converted to a {@link BitboardRuneMap} to be cached if
+	 * possible.
+	 */
+	@Override
+	public List<Combo> countCombo(MutableRuneMap map) {
+		if (!BitboardRuneMap.canHandle(map.getWidth(), map.getHeight()))
+			return counter.countCombo(map);
+		return countCombo(new BitboardRuneMap(map));
+	}
+
+	@Override
+	public List<Combo> countCombo(BitboardRuneMap map) {
+		return lookup(map).toList();
+	}
+
+	@Override
+	public int countComboInto(BitboardRuneMap map, ComboBuffer buffer) {
+		buffer.copyFrom(lookup(map));
+		return buffer.size();
+	}
+
+	private ComboBuffer lookup(BitboardRuneMap map) {
+		long key = map.getZobristHash() ^ (map.getWidth() * 31L + map.getHeight())
+				* 0x9e3779b97f4a7c15L;
+		int first = (int) key & mask & -WAYS;
+		for (int i = first; i < first + WAYS; i++) {
+			Entry entry = entries.get(i);
+			if (entry != null && entry.key == key && isSameMap(entry.board, map)) {
+				entry.referenced = true;
+				hits.increment();
+				return entry.combo;
+			}
+		}
+		misses.increment();
+
+		ComboBuffer combo = new ComboBuffer();
+		counter.countComboInto(map, combo);
+		long[] board = new long[KINDS];
+		for (int i = 0; i < KINDS; i++)
+			board[i] = map.getMask(STONES[i]);
+		entries.set(chooseVictim(first), new Entry(key, board, combo));
+		return combo;
+	}
+
+	private static boolean isSameMap(long[] board, BitboardRuneMap map) {
+		for (int i = 0; i < KINDS; i++)
+			if (board[i] != map.getMask(STONES[i]))
+				return false;
+		return true;
+	}
+
+	/*
+	 * An empty entry, or the first entry not referenced since the hand of this
+	 * set passed. Concurrent evictions may race, which only loses a result.
+	 */
+	private int chooseVictim(int first) {
+		int set = first / WAYS;
+		for (int step = 0; step < 2 * WAYS; step++) {
+			int i = first + (hands.getAndIncrement(set) & (WAYS - 1));
+			Entry entry = entries.get(i);
+			if (entry == null || !entry.referenced)
+				return i;
+			entry.referenced = false;
+		}
+		return first + (hands.get(set) & (WAYS - 1));
+	}
+
+	/**
+	 * Returns the number of results this cache can hold.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return entries.length();
+	}
+
+	/**
+	 * Returns the number of lookups served by the cache.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups counted by the underlying counter.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the ratio of lookups served by the cache.
+	 *
+	 * @return the hit rate; <code>0</code> if nothing was looked up
+	 */
+	public double getHitRate() {
+		long hits = getHits(), total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Reset the counters of hits and misses.
+	 */
+	public void resetCounters() {
+		hits.reset();
+		misses.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"CachingComboCounter[capacity=%d, hits=%d, misses=%d]",
+				getCapacity(), getHits(), getMisses());
+	}
+}
@@ -0,0 +1,100 @@
+package tosram.algorithm;
+
+import java.time.Duration;
+
+/**
+ * A request to stop a search, owned by whoever started it, so that stopping
+ * one search never affects another one run later by the same
+ * <code>PathFinder</code>. It is cancelled either explicitly by
+ * {@link #cancel()} or once its deadline, if any, has passed. It may be
+ * shared by multiple searches to stop them together.
+ *
+ * @see PathFinder#findPath(tosram.RuneMap, CancellationToken,
+ *      java.util.function.BiConsumer)
+ * @author johnchen902
+ */
+public final class CancellationToken {
+
+	private static final Duration NEVER = Duration.ofNanos(Long.MAX_VALUE / 2);
+
+	private final boolean hasDeadline;
+	private final long deadline;
+	private volatile boolean cancelled;
+
+	/**
+	 * A token without deadline.
+	 */
+	public CancellationToken() {
+		hasDeadline = false;
+		deadline = 0;
+	}
+
+	/**
+	 * A token cancelled after the specified time from now.
+	 *
+	 * @param timeout
+	 *            the time after which the token is cancelled
+	 * @throws IllegalArgumentException
+	 *             if <code>timeout</code> is negative
+	 */
+	public CancellationToken(Duration timeout) {
+		if (timeout.isNegative())
+			throw new IllegalArgumentException("timeout < 0");
+		// a timeout of centuries would overflow, and never come anyway
+		hasDeadline = timeout.compareTo(NEVER) < 0;
+		deadline = hasDeadline ? System.nanoTime() + timeout.toNanos() : 0;
+	}
+
+	/**
+	 * Cancel, if not yet.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Determines whether cancelled, explicitly or by the deadline. With a
+	 * deadline it reads the clock, so searches check it only once in a while;
+	 * see {@link AbstractPathFinder#isStopped(SearchStatistics.Recorder)}.
+	 *
+	 * @return <code>true</code> if cancelled; <code>false</code> otherwise
+	 */
+	public boolean isCancelled() {
+		if (cancelled)
+			return true;
+		if (hasDeadline && System.nanoTime() - deadline >= 0) {
+			cancelled = true;
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Whether cancelled explicitly or by a deadline already seen passed,
+	 * without reading the clock.
+	 */
+	boolean isCancelledAsKnown() {
+		return cancelled;
+	}
+
+	/**
+	 * Returns the time remaining before the deadline.
+	 *
+	 * @return the time remaining, which is zero if cancelled;
+	 *         <code>null</code> if there is no deadline and not cancelled
+	 */
+	public Duration getRemainingTime() {
+		if (isCancelled())
+			return Duration.ZERO;
+		if (!hasDeadline)
+			return null;
+		return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+	}
+
+	@Override
+	public String toString() {
+		return "CancellationToken[cancelled=" + isCancelled()
+				+ (hasDeadline ? ", remaining=" + getRemainingTime() : "")
+				+ "]";
+	}
+}
@@ -0,0 +1,258 @@
+package tosram.algorithm;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import tosram.Direction;
+import tosram.MutableRuneMap;
+import tosram.Path;
+import tosram.RuneMap;
+import tosram.RuneStone;
+import tosram.algorithm.idastar.CostFunction;
+
+/**
+ * Maps equivalent boards to one canonical form. Mirroring a board left to
+ * right mirrors its best paths, if the restriction and the cost function are
+ * mirror symmetric; permuting the colors of a board keeps its best paths, if
+ * they are color agnostic. Of a board and its mirror image, each with its
+ * colors renumbered in the order they first appear, the canonical form is the
+ * lesser in row-major order of stones. Mirroring top to bottom is not an
+ * equivalence, as stones fall downward after dissolving.
+ * <p>
+ * Solutions may thus be shared between equivalent boards by keying them with
+ * the canonical form and mapping paths with {@link Form#toCanonical(Path)} and
+ * {@link Form#toOriginal(Path)}. A board equivalent to its own mirror image
+ * has pairs of equivalent starting locations, of which a search needs only
+ * one; see {@link Form#isRedundantStart(int, int)}.
+ *
+ * @see PathRestriction#isMirrorSymmetric()
+ * @see PathRestriction#isColorAgnostic()
+ * @author johnchen902
+ */
+public final class Canonicalizer {
+
+	private static final RuneStone[] STONES = RuneStone.values();
+	private static final int UNKNOWN = RuneStone.UNKNOWN.ordinal();
+
+	private final boolean mirroring, relabeling;
+
+	/**
+	 * Constructor specifying the symmetries to exploit.
+	 *
+	 * @param mirroring
+	 *            whether mirror images are equivalent
+	 * @param relabeling
+	 *            whether color permutations are equivalent
+	 */
+	public Canonicalizer(boolean mirroring, boolean relabeling) {
+		this.mirroring = mirroring;
+		this.relabeling = relabeling;
+	}
+
+	/**
+	 * Returns a canonicalizer exploiting the symmetries that both the
+	 * restriction and the cost function have.
+	 *
+	 * @param restriction
+	 *            the restriction searched with
+	 * @param costFunction
+	 *            the cost function searched with
+	 * @return a canonicalizer
+	 */
+	public static Canonicalizer of(PathRestriction restriction,
+			CostFunction costFunction) {
+		return new Canonicalizer(restriction.isMirrorSymmetric()
+				&& costFunction.isMirrorSymmetric(),
+				restriction.isColorAgnostic() && costFunction.isColorAgnostic());
+	}
+
+	/**
+	 * Determines whether mirror images are equivalent.
+	 *
+	 * @return <code>true</code> if mirroring; <code>false</code> otherwise
+	 */
+	public boolean isMirroring() {
+		return mirroring;
+	}
+
+	/**
+	 * Determines whether color permutations are equivalent.
+	 *
+	 * @return <code>true</code> if relabeling; <code>false</code> otherwise
+	 */
+	public boolean isRelabeling() {
+		return relabeling;
+	}
+
+	/**
+	 * Returns the canonical form of the specified map.
+	 *
+	 * @param map
+	 *            the map
+	 * @return the canonical form, and how to map paths to and from it
+	 */
+	public Form canonicalize(RuneMap map) {
+		Objects.requireNonNull(map);
+		byte[] image = image(map, false);
+		if (!mirroring)
+			return new Form(toMap(map, image), map.getWidth(), false, false);
+		byte[] mirrored = image(map, true);
+		int order = compare(mirrored, image);
+		return new Form(toMap(map, order < 0 ? mirrored : image),
+				map.getWidth(), order < 0, order == 0);
+	}
+
+	/*
+	 * The stones of the map or its mirror image in row-major order,
+	 * renumbered if relabeling.
+	 */
+	private byte[] image(RuneMap map, boolean mirror) {
+		int width = map.getWidth(), height = map.getHeight();
+		byte[] image = new byte[width * height];
+		byte[] labels = new byte[STONES.length];
+		Arrays.fill(labels, (byte) -1);
+		labels[UNKNOWN] = (byte) UNKNOWN;
+		byte next = 0;
+		for (int y = 0, i = 0; y < height; y++)
+			for (int x = 0; x < width; x++, i++) {
+				int stone = map.getRuneStone(mirror ? width - 1 - x : x, y)
+						.ordinal();
+				if (!relabeling)
+					image[i] = (byte) stone;
+				else {
+					if (labels[stone] == -1)
+						labels[stone] = next++;
+					image[i] = labels[stone];
+				}
+			}
+		return image;
+	}
+
+	private static int compare(byte[] a, byte[] b) {
+		for (int i = 0; i < a.length; i++)
+			if (a[i] != b[i])
+				return a[i] - b[i];
+		return 0;
+	}
+
+	/*
+	 * The map of the stones, which is the original one if the same.
+	 */
+	private static RuneMap toMap(RuneMap original, byte[] stones) {
+		int width = original.getWidth(), height = original.getHeight();
+		boolean same = true;
+		for (int y = 0, i = 0; y < height && same; y++)
+			for (int x = 0; x < width && same; x++, i++)
+				same = original.getRuneStone(x, y).ordinal() == stones[i];
+		if (same)
+			return original;
+		MutableRuneMap map = new MutableRuneMap(width, height);
+		for (int y = 0, i = 0; y < height; y++)
+			for (int x = 0; x < width; x++, i++)
+				map.setRuneStone(x, y, STONES[stones[i]]);
+		return new RuneMap(map);
+	}
+
+	/**
+	 * The canonical form of a map, and how to map paths between it and the
+	 * original map.
+	 *
+	 * @author johnchen902
+	 */
+	public static final class Form {
+		private final RuneMap map;
+		private final int width;
+		private final boolean mirrored, symmetric;
+
+		private Form(RuneMap map, int width, boolean mirrored,
+				boolean symmetric) {
+			this.map = map;
+			this.width = width;
+			this.mirrored = mirrored;
+			this.symmetric = symmetric;
+		}
+
+		/**
+		 * Returns the canonical map.
+		 *
+		 * @return the canonical map, which is the original one if already
+		 *         canonical
+		 */
+		public RuneMap getMap() {
+			return map;
+		}
+
+		/**
+		 * Determines whether the canonical map is mirrored from the original
+		 * one, so that paths differ between them.
+		 *
+		 * @return <code>true</code> if mirrored; <code>false</code> otherwise
+		 */
+		public boolean isMirrored() {
+			return mirrored;
+		}
+
+		/**
+		 * Map a path on the original map to the equivalent path on the
+		 * canonical map.
+		 *
+		 * @param path
+		 *            a path on the original map
+		 * @return the equivalent path on the canonical map
+		 */
+		public Path toCanonical(Path path) {
+			return mirrored ? mirror(path) : path;
+		}
+
+		/**
+		 * Map a path on the canonical map to the equivalent path on the
+		 * original map.
+		 *
+		 * @param path
+		 *            a path on the canonical map
+		 * @return the equivalent path on the original map
+		 */
+		public Path toOriginal(Path path) {
+			// mirroring twice is the identity
+			return mirrored ? mirror(path) : path;
+		}
+
+		/**
+		 * Determines whether the original map is equivalent to its mirror
+		 * image, so that starting locations are equivalent in pairs.
+		 *
+		 * @return <code>true</code> if symmetric; <code>false</code> otherwise
+		 */
+		public boolean isSymmetric() {
+			return symmetric;
+		}
+
+		/**
+		 * Determines whether searching from the specified location of the
+		 * original map is redundant, because the map is equivalent to its
+		 * mirror image, and the location is in the right half, whose
+		 * locations are equivalent to those in the left half.
+		 *
+		 * @param x
+		 *            the X coordinate of the location
+		 * @param y
+		 *            the Y coordinate of the location
+		 * @return <code>true</code> if redundant; <code>false</code> otherwise
+		 */
+		public boolean isRedundantStart(int x, int y) {
+			return symmetric && width - 1 - x < x;
+		}
+
+		private Path mirror(Path path) {
+			List<Direction> directions = new ArrayList<>(path.getDirections()
+					.size());
+			for (Direction direction : path.getDirections())
+				directions.add(direction.getHorizontalMirror());
+			return new Path(new Point(width - 1 - path.getBeginX(),
+					path.getBeginY()), directions);
+		}
+	}
+}
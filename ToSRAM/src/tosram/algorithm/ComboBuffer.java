@@ -0,0 +1,215 @@
+package tosram.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import tosram.BitboardRuneMap;
+import tosram.RuneStone;
+import tosram.algorithm.ComboCounter.Combo;
+
+/**
+ * A reusable buffer receiving combo of a {@link BitboardRuneMap} as primitive
+ * arrays, so that counting combo repeatedly creates no objects. Each combo is
+ * recorded as the bitmask of its stones (in the layout of
+ * <code>BitboardRuneMap</code>), its type and its batch.
+ * <p>
+ * A buffer not recording only keeps the number of combo, which is all some
+ * {@link tosram.algorithm.idastar.CostFunction CostFunction} needs.
+ *
+ * @see ComboCounter#countComboInto(BitboardRuneMap, ComboBuffer)
+ * @author johnchen902
+ */
+public final class ComboBuffer {
+
+	private static final RuneStone[] STONES = RuneStone.values();
+
+	/*
+	 * The map being dissolved by LongComboCounter, one mask per kind.
+	 */
+	final long[] board = new long[RuneStone.UNKNOWN.ordinal()];
+
+	private final boolean recording;
+	private int width;
+	private int size;
+	private long[] masks;
+	private byte[] types;
+	private byte[] batches;
+
+	/**
+	 * Create a recording buffer.
+	 */
+	public ComboBuffer() {
+		this(true);
+	}
+
+	/**
+	 * Create a buffer.
+	 *
+	 * @param recording
+	 *            <code>true</code> if every combo should be recorded;
+	 *            <code>false</code> if only the number of combo is needed
+	 */
+	public ComboBuffer(boolean recording) {
+		this.recording = recording;
+		int capacity = recording ? 16 : 0;
+		masks = new long[capacity];
+		types = new byte[capacity];
+		batches = new byte[capacity];
+	}
+
+	/**
+	 * Determines whether every combo is recorded.
+	 *
+	 * @return <code>true</code> if every combo is recorded;
+	 *         <code>false</code> if only the number of combo is kept
+	 */
+	public boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * Returns the width of the map the combo were made from.
+	 *
+	 * @return the width of the map
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of combo.
+	 *
+	 * @return the number of combo
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the bitmask of stones dissolved in the specified combo.
+	 *
+	 * @param index
+	 *            the index of the combo
+	 * @return the bitmask of stones
+	 * @throws IllegalStateException
+	 *             if this buffer is not recording
+	 */
+	public long getMask(int index) {
+		checkIndex(index);
+		return masks[index];
+	}
+
+	/**
+	 * Returns the <code>RuneStone</code> that made the specified combo.
+	 *
+	 * @param index
+	 *            the index of the combo
+	 * @return a <code>RuneStone</code>
+	 * @throws IllegalStateException
+	 *             if this buffer is not recording
+	 */
+	public RuneStone getType(int index) {
+		checkIndex(index);
+		return STONES[types[index]];
+	}
+
+	/**
+	 * Returns on which batch the specified combo is made.
+	 *
+	 * @param index
+	 *            the index of the combo
+	 * @return the batch the combo is made, starting from zero
+	 * @throws IllegalStateException
+	 *             if this buffer is not recording
+	 */
+	public int getBatch(int index) {
+		checkIndex(index);
+		return batches[index];
+	}
+
+	private void checkIndex(int index) {
+		if (!recording)
+			throw new IllegalStateException("Not recording");
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("index=" + index);
+	}
+
+	/**
+	 * Remove all combo, preparing for combo of a map with the specified width.
+	 *
+	 * @param width
+	 *            the width of the map
+	 */
+	public void clear(int width) {
+		this.width = width;
+		this.size = 0;
+	}
+
+	/**
+	 * Add a combo.
+	 *
+	 * @param mask
+	 *            the bitmask of stones dissolved in the combo
+	 * @param type
+	 *            the <code>RuneStone</code> that made the combo
+	 * @param batch
+	 *            the batch the combo is made
+	 */
+	public void add(long mask, RuneStone type, int batch) {
+		if (recording) {
+			Objects.requireNonNull(type);
+			if (batch < 0 || batch > Byte.MAX_VALUE)
+				throw new IllegalArgumentException("batch=" + batch);
+			if (size == masks.length) {
+				int capacity = Math.max(16, size * 2);
+				masks = Arrays.copyOf(masks, capacity);
+				types = Arrays.copyOf(types, capacity);
+				batches = Arrays.copyOf(batches, capacity);
+			}
+			masks[size] = mask;
+			types[size] = (byte) type.ordinal();
+			batches[size] = (byte) batch;
+		}
+		size++;
+	}
+
+	/**
+	 * Make this buffer a copy of another one.
+	 *
+	 * @param that
+	 *            the buffer to copy from
+	 * @throws IllegalStateException
+	 *             if this buffer is recording but <code>that</code> is not
+	 */
+	public void copyFrom(ComboBuffer that) {
+		if (recording && !that.recording)
+			throw new IllegalStateException("Not recording");
+		clear(that.width);
+		if (!recording) {
+			size = that.size;
+			return;
+		}
+		for (int i = 0; i < that.size; i++)
+			add(that.masks[i], STONES[that.types[i]], that.batches[i]);
+	}
+
+	/**
+	 * Create a list of combo from this buffer.
+	 *
+	 * @return an unmodifiable list of combo
+	 * @throws IllegalStateException
+	 *             if this buffer is not recording
+	 */
+	public List<Combo> toList() {
+		if (!recording)
+			throw new IllegalStateException("Not recording");
+		List<Combo> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			list.add(new LongComboCounter.ComboImpl(masks[i], STONES[types[i]],
+					width, batches[i]));
+		return Collections.unmodifiableList(list);
+	}
+}
@@ -3,6 +3,7 @@ package tosram.algorithm;
 import java.awt.Point;
 import java.util.List;
 
+import tosram.BitboardRuneMap;
 import tosram.MutableRuneMap;
 import tosram.RuneStone;
 
@@ -94,4 +95,40 @@ public interface ComboCounter {
 	 * @return the combo made by this map
 	 */
 	public List<Combo> countCombo(MutableRuneMap map);
+
+	/**
+	 * Analyze the combo of the specified map. The default implementation
+	 * converts it to a <code>MutableRuneMap</code>.
+	 * 
+	 * @param map
+	 *            the map to analyze
+	 * @return the combo made by this map
+	 * @see #countCombo(MutableRuneMap)
+	 */
+	public default List<Combo> countCombo(BitboardRuneMap map) {
+		return countCombo(map.toMutable());
+	}
+
+	/**
+	 * Analyze the combo of the specified map into a buffer. The default
+	 * implementation converts the result of
+	 * {@link #countCombo(BitboardRuneMap)}.
+	 * 
+	 * @param map
+	 *            the map to analyze
+	 * @param buffer
+	 *            the buffer to receive the combo; cleared before adding
+	 * @return the number of combo made by this map
+	 */
+	public default int countComboInto(BitboardRuneMap map, ComboBuffer buffer) {
+		List<Combo> comboList = countCombo(map);
+		buffer.clear(map.getWidth());
+		for (Combo combo : comboList) {
+			long mask = 0;
+			for (Point p : combo.getPoints())
+				mask |= map.getBit(p.x, p.y);
+			buffer.add(mask, combo.getType(), combo.getBatch());
+		}
+		return buffer.size();
+	}
 }
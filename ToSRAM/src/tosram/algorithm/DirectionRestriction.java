@@ -0,0 +1,127 @@
+package tosram.algorithm;
+
+import java.util.List;
+
+import tosram.BitboardRuneMap;
+import tosram.Direction;
+import tosram.MutableRuneMap;
+
+/**
+ * A {@link PathRestriction} depending only on the last direction moved and the
+ * direction in question, which allows starting anywhere. As there are only
+ * <code>9 * 8</code> cases, it can be compiled into a table, as
+ * {@link tosram.algorithm.path.CompositeRestriction CompositeRestriction} does.
+ * The result must not change over time.
+ *
+ * @author johnchen902
+ */
+public interface DirectionRestriction extends PathRestriction {
+
+	/**
+	 * Determines whether it's allowed to move toward the specified direction
+	 * right after the last direction.
+	 *
+	 * @param last
+	 *            the last direction moved; <code>null</code> if not moved yet
+	 * @param direction
+	 *            the direction in question
+	 * @return <code>true</code> if it's allowed to move toward the specified
+	 *         direction; <code>false</code> otherwise
+	 */
+	public boolean canMove(Direction last, Direction direction);
+
+	/**
+	 * Returns <code>true</code>.
+	 */
+	@Override
+	public default boolean canStart(int startingX, int startingY,
+			MutableRuneMap map) {
+		return true;
+	}
+
+	/**
+	 * Delegate to {@link #canMove(Direction, Direction)}.
+	 */
+	@Override
+	public default boolean canMove(int startingX, int startingY,
+			List<Direction> directions, Direction direction, int resultingX,
+			int resultingY, MutableRuneMap map) {
+		return canMove(last(directions), direction);
+	}
+
+	/**
+	 * Returns <code>true</code>.
+	 */
+	@Override
+	public default boolean canStart(int startingX, int startingY,
+			BitboardRuneMap map) {
+		return true;
+	}
+
+	/**
+	 * Delegate to {@link #canMove(Direction, Direction)}.
+	 */
+	@Override
+	public default boolean canMove(int startingX, int startingY,
+			List<Direction> directions, Direction direction, int resultingX,
+			int resultingY, BitboardRuneMap map) {
+		return canMove(last(directions), direction);
+	}
+
+	/**
+	 * Checks every case of {@link #canMove(Direction, Direction)} for a
+	 * diagonal move allowed.
+	 */
+	@Override
+	public default boolean allowsDiagonalMoves() {
+		for (Direction direction : Direction.values()) {
+			if (!direction.isDiagonal())
+				continue;
+			if (canMove(null, direction))
+				return true;
+			for (Direction last : Direction.values())
+				if (canMove(last, direction))
+					return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks every case of {@link #canMove(Direction, Direction)} against the
+	 * mirrored one.
+	 */
+	@Override
+	public default boolean isMirrorSymmetric() {
+		for (Direction direction : Direction.values()) {
+			if (canMove(null, direction) != canMove(null,
+					direction.getHorizontalMirror()))
+				return false;
+			for (Direction last : Direction.values())
+				if (canMove(last, direction) != canMove(
+						last.getHorizontalMirror(),
+						direction.getHorizontalMirror()))
+					return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code>, as the map is never looked at.
+	 */
+	@Override
+	public default boolean isColorAgnostic() {
+		return true;
+	}
+
+	/**
+	 * Returns the last direction of the list.
+	 *
+	 * @param directions
+	 *            the directions already moved
+	 * @return the last direction; <code>null</code> if the list is empty
+	 */
+	public static Direction last(List<Direction> directions) {
+		return directions.isEmpty() ? null : directions
+				.get(directions.size() - 1);
+	}
+}
@@ -0,0 +1,101 @@
+package tosram.algorithm;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import tosram.Path;
+import tosram.RuneMap;
+
+/**
+ * A result better than the previous ones of a search, as delivered by
+ * {@link ResultPublisher}: the path, its description and the map after
+ * following the path.
+ *
+ * @see ResultPublisher.Subscriber#onNext(Improvement)
+ * @author johnchen902
+ */
+public final class Improvement {
+
+	private final Path path;
+	private final String description;
+	private final RuneMap finalMap;
+	private final long sequence;
+	private final Duration elapsed;
+
+	/**
+	 * Constructor specifying everything.
+	 *
+	 * @param path
+	 *            the path found
+	 * @param description
+	 *            the description of <code>path</code>
+	 * @param finalMap
+	 *            the map after following <code>path</code>
+	 * @param sequence
+	 *            the number of results found before this one
+	 * @param elapsed
+	 *            the time from the start of the search to finding the path
+	 */
+	public Improvement(Path path, String description, RuneMap finalMap,
+			long sequence, Duration elapsed) {
+		this.path = Objects.requireNonNull(path);
+		this.description = Objects.requireNonNull(description);
+		this.finalMap = Objects.requireNonNull(finalMap);
+		this.sequence = sequence;
+		this.elapsed = Objects.requireNonNull(elapsed);
+	}
+
+	/**
+	 * Returns the path found.
+	 *
+	 * @return the path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the textual description of the path, as passed to the callback
+	 * of {@link PathFinder#findPath(RuneMap, java.util.function.BiConsumer)}.
+	 *
+	 * @return the description
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Returns the map after following the path from the initial map.
+	 *
+	 * @return the final map
+	 * @see Path#follow(RuneMap, Path)
+	 */
+	public RuneMap getFinalMap() {
+		return finalMap;
+	}
+
+	/**
+	 * Returns the number of results found before this one, including those
+	 * coalesced and never delivered.
+	 *
+	 * @return the sequence number, starting from <code>0</code>
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the time from the start of the search to finding the path.
+	 *
+	 * @return the time elapsed
+	 */
+	public Duration getElapsed() {
+		return elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return "Improvement[path=" + path + ", description=" + description
+				+ ", sequence=" + sequence + ", elapsed=" + elapsed + "]";
+	}
+}
@@ -0,0 +1,163 @@
+package tosram.algorithm;
+
+import java.util.Objects;
+
+import tosram.BitboardRuneMap;
+import tosram.RuneStone;
+
+/**
+ * Evaluates combo of a <code>BitboardRuneMap</code> modified only by swapping
+ * stones, which is what a searching algorithm does. On every
+ * {@link #swap(int, int, int, int)}, only the rows and columns touched by the
+ * swap are scanned again to find out whether any three identical stones are
+ * lined up. If none are, there is no combo and the underlying
+ * {@link ComboCounter} is not invoked at all. Combo are counted into a
+ * {@link ComboBuffer} owned by the caller.
+ * <p>
+ * It is assumed that a combo requires three identical stones in a line, as in
+ * Tower of Savior.
+ *
+ * @author johnchen902
+ */
+public class IncrementalComboEvaluator {
+
+	private static final RuneStone[] STONES = RuneStone.values();
+	private static final int KINDS = RuneStone.UNKNOWN.ordinal();
+
+	private final ComboCounter counter;
+	private final BitboardRuneMap map;
+	private final int width, height;
+	private final long[] triples;
+	private final long[] rowMasks, columnMasks;
+	private final ComboBuffer buffer;
+	private final long[] cachedMasks;
+	private boolean isCached;
+
+	/**
+	 * Create an evaluator of the specified map.
+	 *
+	 * @param counter
+	 *            the <code>ComboCounter</code> to count combo with
+	 * @param map
+	 *            the map to evaluate; should only be modified via this
+	 *            evaluator afterward
+	 * @param buffer
+	 *            the buffer to receive the combo; should only be modified via
+	 *            this evaluator afterward
+	 */
+	public IncrementalComboEvaluator(ComboCounter counter, BitboardRuneMap map,
+			ComboBuffer buffer) {
+		this.counter = Objects.requireNonNull(counter);
+		this.map = Objects.requireNonNull(map);
+		this.buffer = Objects.requireNonNull(buffer);
+		this.width = map.getWidth();
+		this.height = map.getHeight();
+		triples = new long[KINDS];
+		reset();
+		rowMasks = new long[height];
+		columnMasks = new long[width];
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++) {
+				rowMasks[y] |= map.getBit(x, y);
+				columnMasks[x] |= map.getBit(x, y);
+			}
+		cachedMasks = new long[KINDS];
+	}
+
+	/**
+	 * Returns the map evaluated.
+	 *
+	 * @return the map evaluated
+	 */
+	public BitboardRuneMap getMap() {
+		return map;
+	}
+
+	/**
+	 * Evaluate the map again from scratch, after it is modified other than
+	 * via this evaluator, e.g. by {@link BitboardRuneMap#copyFrom(BitboardRuneMap)}.
+	 */
+	public void reset() {
+		for (int i = 0; i < KINDS; i++)
+			triples[i] = findTriples(map.getMask(STONES[i]));
+		isCached = false;
+	}
+
+	/**
+	 * Swap two stone at the specific locations of the map.
+	 *
+	 * @param x1
+	 *            the X coordinate of the first stone
+	 * @param y1
+	 *            the Y coordinate of the first stone
+	 * @param x2
+	 *            the X coordinate of the second stone
+	 * @param y2
+	 *            the Y coordinate of the second stone
+	 * @see BitboardRuneMap#swap(int, int, int, int)
+	 */
+	public void swap(int x1, int y1, int x2, int y2) {
+		RuneStone stone1 = map.getRuneStone(x1, y1);
+		RuneStone stone2 = map.getRuneStone(x2, y2);
+		if (stone1 == stone2)
+			return;
+		map.swap(x1, y1, x2, y2);
+		long region = rowMasks[y1] | rowMasks[y2] | columnMasks[x1]
+				| columnMasks[x2];
+		update(stone1, region);
+		update(stone2, region);
+	}
+
+	/*
+	 * Triples of other kinds are not affected, and those of this kind
+	 * involving the swapped stones start in the touched rows or columns.
+	 */
+	private void update(RuneStone stone, long region) {
+		if (stone == RuneStone.UNKNOWN)
+			return;
+		int i = stone.ordinal();
+		triples[i] = (triples[i] & ~region)
+				| (findTriples(map.getMask(stone)) & region);
+	}
+
+	/**
+	 * Analyze the combo of the map.
+	 *
+	 * @return the buffer containing the combo made by the map, which is valid
+	 *         until the next swap
+	 * @see ComboCounter#countComboInto(BitboardRuneMap, ComboBuffer)
+	 */
+	public ComboBuffer countCombo() {
+		long any = 0;
+		for (long t : triples)
+			any |= t;
+		if (any == 0) {
+			buffer.clear(width);
+			isCached = false;
+		} else if (!isCached || !isSameMap()) {
+			counter.countComboInto(map, buffer);
+			for (int i = 0; i < KINDS; i++)
+				cachedMasks[i] = map.getMask(STONES[i]);
+			isCached = true;
+		}
+		return buffer;
+	}
+
+	private boolean isSameMap() {
+		for (int i = 0; i < KINDS; i++)
+			if (cachedMasks[i] != map.getMask(STONES[i]))
+				return false;
+		return true;
+	}
+
+	/*
+	 * Get the bits where three stones in a row or column start.
+	 */
+	private long findTriples(long mask) {
+		long horizontal = mask & mask >>> 1 & mask >>> 2;
+		if (height < 3) // shifting by 2 * (width + 1) may overflow
+			return horizontal;
+		int s = width + 1;
+		return horizontal | (mask & mask >>> s & mask >>> (s + s));
+	}
+}
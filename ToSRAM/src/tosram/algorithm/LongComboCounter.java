@@ -5,29 +5,40 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import tosram.BitboardRuneMap;
 import tosram.MutableRuneMap;
 import tosram.RuneStone;
 
 /**
  * An combo counter using <code>long</code> as bitmask under Tower of Savior
  * rules. As <code>long</code> only has <code>64</code> bits, it can only handle
- * maps satisfying <code>(width + 1) * height - 1 <= 64</code>.
+ * maps satisfying <code>(width + 1) * height - 1 <= 64</code>. The map is
+ * analyzed as a {@link BitboardRuneMap}, which is converted from a
+ * <code>MutableRuneMap</code> if necessary. Larger
+ * <code>MutableRuneMap</code> are delegated to a
+ * {@link MultiLongComboCounter}.
  * 
  * @author johnchen902
  */
 public class LongComboCounter implements ComboCounter {
 
-	private static class ComboImpl extends Combo {
+	private static final RuneStone[] STONES = RuneStone.values();
+	private static final int KINDS = RuneStone.UNKNOWN.ordinal();
 
-		private/* assigned after construction */int batch;
-		private/* mutable */long mask;
+	private final ComboCounter largeCounter = new MultiLongComboCounter();
+
+	static class ComboImpl extends Combo {
+
+		private final int batch;
+		private final long mask;
 		private final RuneStone type;
 		private final int width;
 
-		private ComboImpl(long mask, RuneStone type, int width) {
+		ComboImpl(long mask, RuneStone type, int width, int batch) {
 			this.mask = mask;
 			this.type = type;
 			this.width = width;
+			this.batch = batch;
 		}
 
 		@Override
@@ -81,7 +92,7 @@ public class LongComboCounter implements ComboCounter {
 				return false;
 			if (type != other.type)
 				return false;
-			if (toWidth(other.width) != width)
+			if (toWidth(other.width) != other.mask)
 				return false;
 			return true;
 		}
@@ -126,111 +137,87 @@ public class LongComboCounter implements ComboCounter {
 
 	/**
 	 * {@inheritDoc}
-	 * 
-	 * @throws IllegalArgumentException
-	 *             if <code>((width + 1) * height) - 1 > 64</code>
+	 * <p>
+	 * Maps satisfying <code>((width + 1) * height) - 1 > 64</code> are
+	 * analyzed by a {@link MultiLongComboCounter}.
 	 */
 	@Override
 	public List<Combo> countCombo(MutableRuneMap map) {
-		if (((map.getWidth() + 1) * map.getHeight()) - 1 > Long.SIZE)
-			throw new IllegalArgumentException("Cannot handle map with size "
-					+ map.getWidth() + " x " + map.getHeight());
-
-		List<Combo> comboList = new ArrayList<>();
-		for (int batch = 0;; batch++) {
-			int lastSize = comboList.size();
-			scanForHorizontalCombo(map, comboList);
-			scanForVerticalCombo(map, comboList);
-			if (lastSize == comboList.size())
-				break;
-			mergeCombo(comboList, lastSize);
-			removeEmptyCombo(comboList, lastSize);
-			setBatch(comboList, lastSize, batch);
-			map = dissolve(map, comboList, lastSize);
-		}
-		return Collections.unmodifiableList(comboList);
-	}
-
-	/*
-	 * Get the bit of a stone at the specified location.
-	 */
-	private static long getBit(int x, int y, int width) {
-		return 1L << (y * (width + 1) + x);
+		if (!BitboardRuneMap.canHandle(map.getWidth(), map.getHeight()))
+			return largeCounter.countCombo(map);
+		return countCombo(new BitboardRuneMap(map));
 	}
 
-	/*
-	 * Get the bit mask of a simple horizontal combo at the specified location.
+	/**
+	 * Analyze the combo of the specified map without converting it.
+	 * 
+	 * @param map
+	 *            the map to analyze
+	 * @return the combo made by this map
 	 */
-	private static long horizontalMask(int x, int y, int width) {
-		return 0b111L << (y * (width + 1) + x);
+	@Override
+	public List<Combo> countCombo(BitboardRuneMap map) {
+		ComboBuffer buffer = new ComboBuffer();
+		countComboInto(map, buffer);
+		return buffer.toList();
 	}
 
-	/*
-	 * Find all horizontal combo and add them to comboList.
+	/**
+	 * Analyze the combo of the specified map without converting it and
+	 * without creating any object.
+	 * 
+	 * @param map
+	 *            the map to analyze
+	 * @param buffer
+	 *            the buffer to receive the combo
+	 * @return the number of combo made by this map
 	 */
-	private static void scanForHorizontalCombo(MutableRuneMap map,
-			List<Combo> comboList) {
+	@Override
+	public int countComboInto(BitboardRuneMap map, ComboBuffer buffer) {
 		int width = map.getWidth(), height = map.getHeight();
-		for (int y = 0; y < height; y++) {
-			for (int x = 2; x < width;) { // . . x
-				RuneStone type = map.getRuneStone(x, y);
-				if (type == RuneStone.UNKNOWN) {
-					x += 3; // . . U . . x
-				} else {
-					if (map.getRuneStone(x - 1, y) == type) {
-						long mask = 0;
-						if (map.getRuneStone(x - 2, y) == type)
-							mask = horizontalMask(x - 2, y, width);
-						for (x++; x < width && type == map.getRuneStone(x, y); x++)
-							mask |= horizontalMask(x - 2, y, width);
-						if (mask != 0)
-							comboList.add(new ComboImpl(mask, type, width));
-					}
-					x += 2; // . a b+ . x
+		long[] masks = buffer.board;
+		for (int i = 0; i < KINDS; i++)
+			masks[i] = map.getMask(STONES[i]);
+
+		buffer.clear(width);
+		for (int batch = 0;; batch++) {
+			long usedMask = 0;
+			for (int i = 0; i < KINDS; i++) {
+				long matched = findMatched(masks[i], width, height);
+				usedMask |= matched;
+				while (matched != 0) {
+					long mask = floodFill(Long.lowestOneBit(matched), matched,
+							width);
+					matched &= ~mask;
+					buffer.add(mask, STONES[i], batch);
 				}
 			}
+			if (usedMask == 0)
+				break;
+			dissolve(masks, usedMask, width, height);
 		}
+		return buffer.size();
 	}
 
 	/*
-	 * Get the bit mask of a simple vertical combo at (0, 0).
-	 */
-	private static long baseVerticalMask(int width) {
-		return 1L | 1L << (width + 1) | 1L << (width + 1) << (width + 1);
-	}
-
-	/*
-	 * Get the bit mask of a simple vertical combo at the specified location.
+	 * Get the bit of a stone at the specified location.
 	 */
-	private static long verticalMask(int x, int y, int width) {
-		return baseVerticalMask(width) << (y * (width + 1) + x);
+	private static long getBit(int x, int y, int width) {
+		return 1L << (y * (width + 1) + x);
 	}
 
 	/*
-	 * Find all vertical combo and add them to comboList.
+	 * Find all stones in a horizontal or vertical combo.
 	 */
-	private static void scanForVerticalCombo(MutableRuneMap map,
-			List<Combo> comboList) {
-		int width = map.getWidth(), height = map.getHeight();
-		for (int x = 0; x < width; x++) {
-			for (int y = 2; y < height;) { // . . y
-				RuneStone type = map.getRuneStone(x, y);
-				if (type == RuneStone.UNKNOWN) {
-					y += 3; // . . U . . y
-				} else {
-					if (map.getRuneStone(x, y - 1) == type) {
-						long mask = 0;
-						if (map.getRuneStone(x, y - 2) == type)
-							mask = verticalMask(x, y - 2, width);
-						for (y++; y < height && type == map.getRuneStone(x, y); y++)
-							mask |= verticalMask(x, y - 2, width);
-						if (mask != 0)
-							comboList.add(new ComboImpl(mask, type, width));
-					}
-					y += 2; // . a b+ . y
-				}
-			}
-		}
+	private static long findMatched(long mask, int width, int height) {
+		long horizontal = mask & mask >>> 1 & mask >>> 2;
+		horizontal |= horizontal << 1 | horizontal << 2;
+		if (height < 3) // shifting by 2 * (width + 1) may overflow
+			return horizontal;
+		int s = width + 1;
+		long vertical = mask & mask >>> s & mask >>> (s + s);
+		vertical |= vertical << s | vertical << (s + s);
+		return horizontal | vertical;
 	}
 
 	/*
@@ -242,73 +229,43 @@ public class LongComboCounter implements ComboCounter {
 	}
 
 	/*
-	 * Check if two combo should be merged to one.
-	 */
-	private static boolean shouldMerge(ComboImpl c1, ComboImpl c2) {
-		return c1.type == c2.type
-				&& (neighborMask(c1.mask, c1.width) & c2.mask) != 0;
-	}
-
-	/*
-	 * Merge all combo that should be merged.
+	 * Find stones in the area connected to seed, i.e. stones merged to a
+	 * combo.
 	 */
-	private static void mergeCombo(List<Combo> comboList, int from) {
-		for (int i = from; i < comboList.size(); i++) {
-			final ComboImpl c1 = (ComboImpl) comboList.get(i);
-			for (int j = from; j < i; j++) {
-				final ComboImpl c2 = (ComboImpl) comboList.get(j);
-				if (shouldMerge(c1, c2)) {
-					c1.mask |= c2.mask;
-					c2.mask = 0;
-				}
-			}
-		}
-	}
-
-	private static void removeEmptyCombo(List<Combo> comboList, int from) {
-		comboList.removeIf(c -> ((ComboImpl) c).mask == 0);
-	}
-
-	private static void setBatch(List<Combo> comboList, int from, int batch) {
-		for (int i = from; i < comboList.size(); i++)
-			((ComboImpl) comboList.get(i)).batch = batch;
+	private static long floodFill(long seed, long area, int width) {
+		long last;
+		do {
+			last = seed;
+			seed = neighborMask(seed, width) & area;
+		} while (seed != last);
+		return seed;
 	}
 
 	/*
 	 * Remove stones in combo from the map, make remaining stones fall and fill
 	 * empty spots with unknown stones.
 	 */
-	private static MutableRuneMap dissolve(MutableRuneMap map,
-			List<Combo> comboList, int from) {
-		map = new MutableRuneMap(map);
-		long usedMask = 0;
-		for (int i = from; i < comboList.size(); i++)
-			usedMask |= ((ComboImpl) comboList.get(i)).mask;
-		int width = map.getWidth(), height = map.getHeight();
+	private static void dissolve(long[] masks, long usedMask, int width,
+			int height) {
+		for (int i = 0; i < KINDS; i++)
+			masks[i] &= ~usedMask;
 		for (int x = 0; x < width; x++) {
 			int yTo = height - 1;
-			int yFrom = height - 2;
-			while (yTo >= 0 && yFrom >= 0) {
-				if ((usedMask & getBit(x, yFrom, width)) != 0 || yFrom >= yTo) {
-					yFrom--;
-				} else {
-					if ((usedMask & getBit(x, yTo, width)) != 0) {
-						map.setRuneStone(x, yTo, map.getRuneStone(x, yFrom));
-						usedMask ^= getBit(x, yTo, width);
-						usedMask ^= getBit(x, yFrom, width);
-						yFrom--;
+			for (int yFrom = height - 1; yFrom >= 0; yFrom--) {
+				long from = getBit(x, yFrom, width);
+				if ((usedMask & from) != 0)
+					continue;
+				if (yFrom != yTo) {
+					long to = getBit(x, yTo, width);
+					for (int i = 0; i < KINDS; i++) {
+						if ((masks[i] & from) != 0) {
+							masks[i] ^= from | to;
+							break;
+						}
 					}
-					yTo--;
-				}
-			}
-			while (yTo >= 0) {
-				if ((usedMask & getBit(x, yTo, width)) != 0) {
-					map.setRuneStone(x, yTo, RuneStone.UNKNOWN);
-					usedMask ^= getBit(x, yTo, width);
 				}
 				yTo--;
 			}
 		}
-		return map;
 	}
 }
@@ -0,0 +1,287 @@
+package tosram.algorithm;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import tosram.MutableRuneMap;
+import tosram.RuneStone;
+
+/**
+ * An combo counter using <code>long[]</code> as bitmask under Tower of Savior
+ * rules, so it can handle maps of any size. It is the same as
+ * {@link LongComboCounter} except that every bitmask spans as many
+ * <code>long</code> as needed, which is slower. The stone at
+ * <code>(x, y)</code> is the bit <code>y * (width + 1) + x</code>, where bit
+ * <code>i</code> is bit <code>i % 64</code> of word <code>i / 64</code>.
+ *
+ * @author johnchen902
+ */
+public class MultiLongComboCounter implements ComboCounter {
+
+	private static final RuneStone[] STONES = RuneStone.values();
+	private static final int KINDS = RuneStone.UNKNOWN.ordinal();
+
+	private static class ComboImpl extends Combo {
+
+		private final int batch;
+		private final long[] mask;
+		private final RuneStone type;
+		private final int width;
+
+		private ComboImpl(long[] mask, RuneStone type, int width, int batch) {
+			this.mask = mask;
+			this.type = type;
+			this.width = width;
+			this.batch = batch;
+		}
+
+		@Override
+		public int getBatch() {
+			return batch;
+		}
+
+		@Override
+		public RuneStone getType() {
+			return type;
+		}
+
+		@Override
+		public int getCount() {
+			int count = 0;
+			for (long word : mask)
+				count += Long.bitCount(word);
+			return count;
+		}
+
+		@Override
+		public List<Point> getPoints() {
+			List<Point> p = new ArrayList<Point>(getCount());
+			for (int w = 0; w < mask.length; w++) {
+				long word = mask[w];
+				while (word != 0L) {
+					int pos = w * Long.SIZE + Long.numberOfTrailingZeros(word);
+					p.add(new Point(pos % (width + 1), pos / (width + 1)));
+					word &= word - 1;
+				}
+			}
+			return Collections.unmodifiableList(p);
+		}
+	}
+
+	/*
+	 * The bitmasks of a map and scratch space of the same size.
+	 */
+	private static final class Board {
+		private final int width, height, words;
+		private final long[][] masks;
+		private final long[] matched, used, seed, last, temp, shifted;
+
+		private Board(MutableRuneMap map) {
+			width = map.getWidth();
+			height = map.getHeight();
+			words = ((width + 1) * height + Long.SIZE - 1) / Long.SIZE;
+			masks = new long[KINDS][words];
+			for (int y = 0; y < height; y++)
+				for (int x = 0; x < width; x++) {
+					RuneStone stone = map.getRuneStone(x, y);
+					if (stone != RuneStone.UNKNOWN)
+						set(masks[stone.ordinal()], bitOf(x, y));
+				}
+			matched = new long[words];
+			used = new long[words];
+			seed = new long[words];
+			last = new long[words];
+			temp = new long[words];
+			shifted = new long[words];
+		}
+
+		private int bitOf(int x, int y) {
+			return y * (width + 1) + x;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Combo> countCombo(MutableRuneMap map) {
+		Board board = new Board(map);
+		List<Combo> list = new ArrayList<>();
+		for (int batch = 0;; batch++) {
+			clear(board.used);
+			for (int i = 0; i < KINDS; i++) {
+				findMatched(board, board.masks[i], board.matched);
+				or(board.used, board.matched);
+				while (!isZero(board.matched)) {
+					long[] mask = floodFill(board, board.matched);
+					andNot(board.matched, mask);
+					list.add(new ComboImpl(mask, STONES[i], board.width, batch));
+				}
+			}
+			if (isZero(board.used))
+				break;
+			dissolve(board);
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	/*
+	 * Find all stones in a horizontal or vertical combo into result.
+	 */
+	private static void findMatched(Board board, long[] mask, long[] result) {
+		int s = board.width + 1;
+		long[] temp = board.temp, shifted = board.shifted;
+
+		// horizontal
+		System.arraycopy(mask, 0, temp, 0, mask.length);
+		shiftRight(mask, 1, shifted);
+		and(temp, shifted);
+		shiftRight(mask, 2, shifted);
+		and(temp, shifted);
+		System.arraycopy(temp, 0, result, 0, temp.length);
+		shiftLeft(temp, 1, shifted);
+		or(result, shifted);
+		shiftLeft(temp, 2, shifted);
+		or(result, shifted);
+
+		// vertical
+		System.arraycopy(mask, 0, temp, 0, mask.length);
+		shiftRight(mask, s, shifted);
+		and(temp, shifted);
+		shiftRight(mask, s + s, shifted);
+		and(temp, shifted);
+		or(result, temp);
+		shiftLeft(temp, s, shifted);
+		or(result, shifted);
+		shiftLeft(temp, s + s, shifted);
+		or(result, shifted);
+	}
+
+	/*
+	 * Find stones in the area connected to the lowest stone of area, i.e.
+	 * stones merged to a combo.
+	 */
+	private static long[] floodFill(Board board, long[] area) {
+		int s = board.width + 1;
+		long[] seed = board.seed, last = board.last, shifted = board.shifted;
+		clear(seed);
+		for (int w = 0; w < area.length; w++) {
+			if (area[w] != 0) {
+				seed[w] = Long.lowestOneBit(area[w]);
+				break;
+			}
+		}
+		do {
+			System.arraycopy(seed, 0, last, 0, seed.length);
+			shiftLeft(last, s, shifted);
+			or(seed, shifted);
+			shiftLeft(last, 1, shifted);
+			or(seed, shifted);
+			shiftRight(last, 1, shifted);
+			or(seed, shifted);
+			shiftRight(last, s, shifted);
+			or(seed, shifted);
+			and(seed, area);
+		} while (!Arrays.equals(seed, last));
+		return seed.clone();
+	}
+
+	/*
+	 * Remove stones in combo from the map, make remaining stones fall and fill
+	 * empty spots with unknown stones.
+	 */
+	private static void dissolve(Board board) {
+		long[][] masks = board.masks;
+		long[] used = board.used;
+		for (int i = 0; i < KINDS; i++)
+			andNot(masks[i], used);
+		for (int x = 0; x < board.width; x++) {
+			int yTo = board.height - 1;
+			for (int yFrom = board.height - 1; yFrom >= 0; yFrom--) {
+				int from = board.bitOf(x, yFrom);
+				if (get(used, from))
+					continue;
+				if (yFrom != yTo) {
+					int to = board.bitOf(x, yTo);
+					for (int i = 0; i < KINDS; i++) {
+						if (get(masks[i], from)) {
+							flip(masks[i], from);
+							flip(masks[i], to);
+							break;
+						}
+					}
+				}
+				yTo--;
+			}
+		}
+	}
+
+	private static boolean get(long[] a, int bit) {
+		return (a[bit / Long.SIZE] & 1L << bit) != 0;
+	}
+
+	private static void set(long[] a, int bit) {
+		a[bit / Long.SIZE] |= 1L << bit;
+	}
+
+	private static void flip(long[] a, int bit) {
+		a[bit / Long.SIZE] ^= 1L << bit;
+	}
+
+	private static void clear(long[] a) {
+		Arrays.fill(a, 0L);
+	}
+
+	private static boolean isZero(long[] a) {
+		for (long word : a)
+			if (word != 0)
+				return false;
+		return true;
+	}
+
+	private static void and(long[] a, long[] b) {
+		for (int i = 0; i < a.length; i++)
+			a[i] &= b[i];
+	}
+
+	private static void andNot(long[] a, long[] b) {
+		for (int i = 0; i < a.length; i++)
+			a[i] &= ~b[i];
+	}
+
+	private static void or(long[] a, long[] b) {
+		for (int i = 0; i < a.length; i++)
+			a[i] |= b[i];
+	}
+
+	/*
+	 * result = a >>> n, as if a were a single integer. Bits shifted out are
+	 * lost.
+	 */
+	private static void shiftRight(long[] a, int n, long[] result) {
+		int words = n / Long.SIZE, bits = n % Long.SIZE;
+		for (int i = 0; i < a.length; i++) {
+			int j = i + words;
+			long low = j < a.length ? a[j] >>> bits : 0;
+			long high = bits != 0 && j + 1 < a.length ? a[j + 1] << (Long.SIZE - bits) : 0;
+			result[i] = low | high;
+		}
+	}
+
+	/*
+	 * result = a << n, as if a were a single integer. Bits shifted out are
+	 * lost.
+	 */
+	private static void shiftLeft(long[] a, int n, long[] result) {
+		int words = n / Long.SIZE, bits = n % Long.SIZE;
+		for (int i = a.length - 1; i >= 0; i--) {
+			int j = i - words;
+			long high = j >= 0 ? a[j] << bits : 0;
+			long low = bits != 0 && j - 1 >= 0 ? a[j - 1] >>> (Long.SIZE - bits) : 0;
+			result[i] = high | low;
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package tosram.algorithm;
 
+import java.time.Duration;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.function.BiConsumer;
 
 import tosram.Path;
@@ -21,11 +24,125 @@ public interface PathFinder {
 	 * @param callBack
 	 *            a callback that would be invoked when some result is found;
 	 *            the <code>Path</code> is the result found and the
-	 *            <code>String</code> is the textual description of the result
+	 *            <code>String</code> is the textual description of the result;
+	 *            it may be invoked from threads other than the calling one,
+	 *            but never concurrently
 	 * @see #stop()
 	 */
 	public void findPath(RuneMap initialMap, BiConsumer<Path, String> callBack);
 
+	/**
+	 * Find a good path of a <code>RuneMap</code> within the specified time,
+	 * and return the best result found. The default implementation reports to
+	 * nowhere.
+	 * 
+	 * @param initialMap
+	 *            the starting <code>RuneMap</code>.
+	 * @param budget
+	 *            the maximum time to search
+	 * @return the best result found
+	 * @throws IllegalArgumentException
+	 *             if <code>budget</code> is negative
+	 * @see #findPath(RuneMap, Duration, BiConsumer)
+	 */
+	public default SearchResult findPath(RuneMap initialMap, Duration budget) {
+		return findPath(initialMap, budget, (path, description) -> {
+		});
+	}
+
+	/**
+	 * Find a good path of a <code>RuneMap</code> within the specified time,
+	 * reporting results as they are found, and return the best result found.
+	 * The default implementation searches with a token of the budget.
+	 * 
+	 * @param initialMap
+	 *            the starting <code>RuneMap</code>.
+	 * @param budget
+	 *            the maximum time to search
+	 * @param callBack
+	 *            a callback that would be invoked when some result is found
+	 * @return the best result found
+	 * @throws IllegalArgumentException
+	 *             if <code>budget</code> is negative
+	 * @see #findPath(RuneMap, CancellationToken, BiConsumer)
+	 */
+	public default SearchResult findPath(RuneMap initialMap, Duration budget,
+			BiConsumer<Path, String> callBack) {
+		return findPath(initialMap, new CancellationToken(budget), callBack);
+	}
+
+	/**
+	 * Find a good path of a <code>RuneMap</code> until the token is
+	 * cancelled, reporting results as they are found, and return the best
+	 * result found. The result is complete if the search ends before the
+	 * token is cancelled. The default implementation polls the token from a
+	 * timer thread and calls {@link #stop()} once it is cancelled.
+	 * 
+	 * @param initialMap
+	 *            the starting <code>RuneMap</code>.
+	 * @param token
+	 *            the token to stop the search
+	 * @param callBack
+	 *            a callback that would be invoked when some result is found
+	 * @return the best result found
+	 * @see #findPath(RuneMap, BiConsumer)
+	 */
+	public default SearchResult findPath(RuneMap initialMap,
+			CancellationToken token, BiConsumer<Path, String> callBack) {
+		long start = System.nanoTime();
+		Object[] best = new Object[2];
+		Timer timer = new Timer(true);
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				if (token.isCancelled()) {
+					stop();
+					cancel();
+				}
+			}
+		}, 0, 10);
+		try {
+			findPath(initialMap, (path, description) -> {
+				best[0] = path;
+				best[1] = description;
+				callBack.accept(path, description);
+			});
+		} finally {
+			timer.cancel();
+		}
+		return new SearchResult((Path) best[0], (String) best[1],
+				!token.isCancelled(), Duration.ofNanos(System.nanoTime()
+						- start));
+	}
+
+	/**
+	 * Find a good path of the initial map of the publisher until the token is
+	 * cancelled, publishing results as they are found, and return the best
+	 * result found. The publisher is closed afterward, exceptionally if the
+	 * search throws. Unlike a callback, a slow subscriber never holds up the
+	 * search.
+	 *
+	 * @param token
+	 *            the token to stop the search
+	 * @param publisher
+	 *            the publisher to publish results to
+	 * @return the best result found
+	 * @see #findPath(RuneMap, CancellationToken, BiConsumer)
+	 */
+	public default SearchResult findPath(CancellationToken token,
+			ResultPublisher publisher) {
+		SearchResult result;
+		try {
+			result = findPath(publisher.getInitialMap(), token,
+					publisher::publish);
+		} catch (RuntimeException | Error e) {
+			publisher.closeExceptionally(e);
+			throw e;
+		}
+		publisher.close();
+		return result;
+	}
+
 	/**
 	 * Stop <code>findPath</code>.
 	 * 
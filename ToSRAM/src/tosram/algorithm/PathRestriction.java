@@ -2,6 +2,7 @@ package tosram.algorithm;
 
 import java.util.List;
 
+import tosram.BitboardRuneMap;
 import tosram.Direction;
 import tosram.MutableRuneMap;
 
@@ -50,4 +51,70 @@ public interface PathRestriction {
 	public boolean canMove(int startingX, int startingY,
 			List<Direction> directions, Direction direction, int resultingX,
 			int resultingY, MutableRuneMap map);
+
+	/**
+	 * Determines whether it's allowed to start from the specified location.
+	 * The default implementation converts the map to a
+	 * <code>MutableRuneMap</code>.
+	 * 
+	 * @see #canStart(int, int, MutableRuneMap)
+	 */
+	public default boolean canStart(int startingX, int startingY,
+			BitboardRuneMap map) {
+		return canStart(startingX, startingY, map.toMutable());
+	}
+
+	/**
+	 * Determines whether it's allowed to move toward the specified direction.
+	 * The default implementation converts the map to a
+	 * <code>MutableRuneMap</code>.
+	 * 
+	 * @see #canMove(int, int, List, Direction, int, int, MutableRuneMap)
+	 */
+	public default boolean canMove(int startingX, int startingY,
+			List<Direction> directions, Direction direction, int resultingX,
+			int resultingY, BitboardRuneMap map) {
+		return canMove(startingX, startingY, directions, direction,
+				resultingX, resultingY, map.toMutable());
+	}
+
+	/**
+	 * Determines whether any diagonal move may be allowed. If not, searching
+	 * algorithms may skip diagonal moves without asking. The default
+	 * implementation returns <code>true</code>.
+	 * 
+	 * @return <code>false</code> if diagonal moves are never allowed;
+	 *         <code>true</code> if they may be
+	 * @see tosram.BoardGeometry#getMoves(int, int, boolean)
+	 */
+	public default boolean allowsDiagonalMoves() {
+		return true;
+	}
+
+	/**
+	 * Determines whether a path is allowed on a map if and only if the path
+	 * mirrored left to right is allowed on the map mirrored left to right. The
+	 * default implementation returns <code>false</code>.
+	 * 
+	 * @return <code>true</code> if symmetric; <code>false</code> if not or
+	 *         unknown
+	 * @see Canonicalizer
+	 */
+	public default boolean isMirrorSymmetric() {
+		return false;
+	}
+
+	/**
+	 * Determines whether a path is allowed on a map if and only if it is
+	 * allowed on the map with the colors of stones, other than
+	 * {@link tosram.RuneStone#UNKNOWN UNKNOWN}, permuted. The default
+	 * implementation returns <code>false</code>.
+	 * 
+	 * @return <code>true</code> if agnostic; <code>false</code> if not or
+	 *         unknown
+	 * @see Canonicalizer
+	 */
+	public default boolean isColorAgnostic() {
+		return false;
+	}
 }
@@ -0,0 +1,344 @@
+package tosram.algorithm;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import tosram.Path;
+import tosram.RuneMap;
+
+/**
+ * A stream of the improving results of a search, in the style of
+ * <code>java.util.concurrent.Flow</code>, which is not available in Java 8.
+ * <p>
+ * {@link #publish(Path, String)}, called from the searching thread, only
+ * records the latest result and never waits for subscribers. Results are
+ * delivered from the executor, where the map after each path is computed.
+ * Latest wins: a subscriber receives no more results than it has requested,
+ * and a result superseded before it can be delivered is dropped, so a slow
+ * subscriber sees fewer but newer results. A subscriber subscribing late
+ * receives the latest result first. The methods of a subscriber are never
+ * called concurrently.
+ *
+ * @see PathFinder#findPath(CancellationToken, ResultPublisher)
+ * @author johnchen902
+ */
+public final class ResultPublisher {
+
+	/**
+	 * A receiver of results, with the same contract as
+	 * <code>java.util.concurrent.Flow.Subscriber</code>.
+	 *
+	 * @author johnchen902
+	 */
+	public interface Subscriber {
+
+		/**
+		 * Invoked before any other method, with the subscription to request
+		 * results from.
+		 *
+		 * @param subscription
+		 *            the subscription
+		 */
+		public void onSubscribe(Subscription subscription);
+
+		/**
+		 * Invoked with a result requested; results found meanwhile may have
+		 * been skipped.
+		 *
+		 * @param item
+		 *            the latest result
+		 */
+		public void onNext(Improvement item);
+
+		/**
+		 * Invoked if the search failed or this subscriber misbehaved; no
+		 * other method is invoked afterward.
+		 *
+		 * @param throwable
+		 *            the cause
+		 */
+		public void onError(Throwable throwable);
+
+		/**
+		 * Invoked once the search has ended and the last result has been
+		 * delivered; no other method is invoked afterward.
+		 */
+		public void onComplete();
+	}
+
+	/**
+	 * The link between a publisher and a subscriber, with the same contract
+	 * as <code>java.util.concurrent.Flow.Subscription</code>.
+	 *
+	 * @author johnchen902
+	 */
+	public interface Subscription {
+
+		/**
+		 * Allow <code>n</code> more results to be delivered. A non-positive
+		 * <code>n</code> fails the subscription with an
+		 * <code>IllegalArgumentException</code>.
+		 *
+		 * @param n
+		 *            the number of results; <code>Long.MAX_VALUE</code> for
+		 *            unlimited
+		 */
+		public void request(long n);
+
+		/**
+		 * Stop delivering results, eventually.
+		 */
+		public void cancel();
+	}
+
+	private final RuneMap initialMap;
+	private final Executor executor;
+	private final long start = System.nanoTime();
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicReference<Found> found = new AtomicReference<>();
+	private final Queue<Link> subscribing = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger signals = new AtomicInteger();
+	private volatile boolean closed;
+	private volatile Throwable error;
+	// accessed only by the draining task
+	private final List<Link> links = new ArrayList<>();
+	private Improvement latest;
+
+	/**
+	 * Create a publisher of results of searching the specified map.
+	 *
+	 * @param initialMap
+	 *            the map searched
+	 * @param executor
+	 *            the executor to deliver results from; at most one task of
+	 *            this publisher runs at a time, and it calls subscribers
+	 *            directly
+	 */
+	public ResultPublisher(RuneMap initialMap, Executor executor) {
+		this.initialMap = Objects.requireNonNull(initialMap);
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	/**
+	 * Returns the map searched.
+	 *
+	 * @return the initial map
+	 */
+	public RuneMap getInitialMap() {
+		return initialMap;
+	}
+
+	/**
+	 * Subscribe to the results. A subscriber may subscribe at any time, even
+	 * after this publisher is closed.
+	 *
+	 * @param subscriber
+	 *            the subscriber
+	 */
+	public void subscribe(Subscriber subscriber) {
+		subscribing.add(new Link(Objects.requireNonNull(subscriber)));
+		signal();
+	}
+
+	/**
+	 * Publish a result better than the previous ones. It returns immediately,
+	 * so it may be used as the callback of a search.
+	 *
+	 * @param path
+	 *            the path found
+	 * @param description
+	 *            the description of <code>path</code>
+	 * @throws IllegalStateException
+	 *             if closed
+	 */
+	public void publish(Path path, String description) {
+		Objects.requireNonNull(path);
+		Objects.requireNonNull(description);
+		if (closed)
+			throw new IllegalStateException("Closed");
+		found.set(new Found(path, description, published.getAndIncrement(),
+				System.nanoTime() - start));
+		signal();
+	}
+
+	/**
+	 * Complete every subscriber once the last result is delivered to it.
+	 * Closing again has no effect.
+	 */
+	public void close() {
+		closed = true;
+		signal();
+	}
+
+	/**
+	 * Fail every subscriber with the specified cause without delivering
+	 * results not yet delivered, unless already closed.
+	 *
+	 * @param throwable
+	 *            the cause
+	 */
+	public void closeExceptionally(Throwable throwable) {
+		Objects.requireNonNull(throwable);
+		if (!closed) {
+			error = throwable;
+			closed = true;
+		}
+		signal();
+	}
+
+	/**
+	 * Determines whether closed.
+	 *
+	 * @return <code>true</code> if closed; <code>false</code> otherwise
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/*
+	 * Run drain() unless running; if running, make it run once more.
+	 */
+	private void signal() {
+		if (signals.getAndIncrement() == 0)
+			executor.execute(this::drain);
+	}
+
+	private void drain() {
+		int missed = 1;
+		do {
+			for (Link link; (link = subscribing.poll()) != null;) {
+				links.add(link);
+				link.pending = latest;
+				link.subscribe();
+			}
+			// closed before reading found, so that the last result is seen
+			boolean done = closed;
+			Found f = found.getAndSet(null);
+			if (f != null) {
+				latest = new Improvement(f.path, f.description, Path.follow(
+						initialMap, f.path), f.sequence, Duration.ofNanos(f.nanos));
+				for (Link link : links)
+					link.pending = latest;
+			}
+			Throwable e = error;
+			for (Iterator<Link> it = links.iterator(); it.hasNext();)
+				if (it.next().emit(done, e))
+					it.remove();
+			missed = signals.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	/*
+	 * A result not yet processed; made in the searching thread.
+	 */
+	private static final class Found {
+		private final Path path;
+		private final String description;
+		private final long sequence, nanos;
+
+		private Found(Path path, String description, long sequence, long nanos) {
+			this.path = path;
+			this.description = description;
+			this.sequence = sequence;
+			this.nanos = nanos;
+		}
+	}
+
+	/*
+	 * The subscription of a subscriber; everything but demand and the
+	 * cancellation is accessed only by the draining task.
+	 */
+	private final class Link implements Subscription {
+		private final Subscriber subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private volatile boolean cancelled;
+		private volatile long invalidRequest = 1;
+		private Improvement pending;
+
+		private Link(Subscriber subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		private void subscribe() {
+			try {
+				subscriber.onSubscribe(this);
+			} catch (RuntimeException e) {
+				fail(e);
+			}
+		}
+
+		/*
+		 * Returns true if this link is terminated.
+		 */
+		private boolean emit(boolean done, Throwable e) {
+			if (cancelled)
+				return true;
+			if (invalidRequest <= 0) {
+				fail(new IllegalArgumentException("request(" + invalidRequest
+						+ ")"));
+				return true;
+			}
+			if (e != null) {
+				fail(e);
+				return true;
+			}
+			if (pending != null && demand.get() > 0) {
+				Improvement item = pending;
+				pending = null;
+				if (demand.get() != Long.MAX_VALUE)
+					demand.decrementAndGet();
+				try {
+					subscriber.onNext(item);
+				} catch (RuntimeException ex) {
+					fail(ex);
+					return true;
+				}
+			}
+			if (done && pending == null && !cancelled) {
+				cancelled = true;
+				try {
+					subscriber.onComplete();
+				} catch (RuntimeException ex) {
+					ex.printStackTrace();
+				}
+			}
+			return cancelled;
+		}
+
+		private void fail(Throwable e) {
+			if (cancelled)
+				return;
+			cancelled = true;
+			try {
+				subscriber.onError(e);
+			} catch (RuntimeException ex) {
+				ex.printStackTrace();
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0)
+				invalidRequest = n;
+			else
+				demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE
+						: a + b);
+			signal();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			signal();
+		}
+	}
+}
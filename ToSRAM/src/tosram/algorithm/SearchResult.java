@@ -0,0 +1,131 @@
+package tosram.algorithm;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import tosram.Path;
+
+/**
+ * The outcome of a search with a time budget: the best path found so far and
+ * its description, and whether the search ran to completion.
+ * 
+ * @see PathFinder#findPath(tosram.RuneMap, Duration)
+ * @author johnchen902
+ */
+public final class SearchResult {
+
+	private final Path path;
+	private final String description;
+	private final boolean complete, optimal;
+	private final Duration elapsed;
+
+	/**
+	 * Constructor specifying everything.
+	 * 
+	 * @param path
+	 *            the best path found; <code>null</code> if none
+	 * @param description
+	 *            the description of <code>path</code>; <code>null</code> if
+	 *            none
+	 * @param complete
+	 *            <code>true</code> if the search ended by itself;
+	 *            <code>false</code> if stopped or out of time
+	 * @param elapsed
+	 *            the time the search took
+	 */
+	public SearchResult(Path path, String description, boolean complete,
+			Duration elapsed) {
+		this(path, description, complete, false, elapsed);
+	}
+
+	/**
+	 * Constructor specifying everything, including whether the result is
+	 * proved optimal.
+	 * 
+	 * @param path
+	 *            the best path found; <code>null</code> if none
+	 * @param description
+	 *            the description of <code>path</code>; <code>null</code> if
+	 *            none
+	 * @param complete
+	 *            <code>true</code> if the search ended by itself;
+	 *            <code>false</code> if stopped or out of time
+	 * @param optimal
+	 *            <code>true</code> if the search proved that no better path
+	 *            can be found
+	 * @param elapsed
+	 *            the time the search took
+	 */
+	public SearchResult(Path path, String description, boolean complete,
+			boolean optimal, Duration elapsed) {
+		this.path = path;
+		this.description = description;
+		this.complete = complete;
+		this.optimal = optimal;
+		this.elapsed = Objects.requireNonNull(elapsed);
+	}
+
+	/**
+	 * Determines whether any path was found.
+	 * 
+	 * @return <code>true</code> if a path was found; <code>false</code>
+	 *         otherwise
+	 */
+	public boolean isFound() {
+		return path != null;
+	}
+
+	/**
+	 * Returns the best path found.
+	 * 
+	 * @return the best path; <code>null</code> if none
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the textual description of the best path found, as passed to the
+	 * callback of {@link PathFinder#findPath(tosram.RuneMap, java.util.function.BiConsumer)}.
+	 * 
+	 * @return the description; <code>null</code> if no path was found
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Determines whether the search ended by itself, instead of being stopped
+	 * or running out of time.
+	 * 
+	 * @return <code>true</code> if complete; <code>false</code> otherwise
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Determines whether the search proved that no better path can be found,
+	 * for the restriction and the criteria of the algorithm.
+	 * 
+	 * @return <code>true</code> if optimal; <code>false</code> otherwise
+	 */
+	public boolean isOptimal() {
+		return optimal;
+	}
+
+	/**
+	 * Returns the time the search took.
+	 * 
+	 * @return the time elapsed
+	 */
+	public Duration getElapsed() {
+		return elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchResult[path=" + path + ", description=" + description
+				+ ", complete=" + complete + ", optimal=" + optimal + ", elapsed=" + elapsed + "]";
+	}
+}
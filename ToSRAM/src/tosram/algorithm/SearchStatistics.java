@@ -0,0 +1,311 @@
+package tosram.algorithm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import tosram.BitboardRuneMap;
+
+/**
+ * Statistics of the search of a {@link AbstractPathFinder}, which can be read
+ * from any thread while the search is running.
+ * <p>
+ * Searching threads do not update the statistics directly; each of them
+ * counts into its own {@link Recorder}, which is flushed into the statistics
+ * once in a while. Hence the numbers read during a search may lag behind
+ * slightly, but are exact after the search ends.
+ *
+ * @author johnchen902
+ */
+public final class SearchStatistics {
+
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder restrictionPrunes = new LongAdder();
+	private final LongAdder costPrunes = new LongAdder();
+	private final LongAdder transpositionPrunes = new LongAdder();
+	private final LongAdder comboCalls = new LongAdder();
+	private final LongAdder comboNanos = new LongAdder();
+	private volatile int limit;
+	private volatile long startNanos, endNanos;
+	private volatile boolean isRunning;
+
+	SearchStatistics() {
+	}
+
+	/*
+	 * Called when a search starts.
+	 */
+	void start() {
+		nodes.reset();
+		restrictionPrunes.reset();
+		costPrunes.reset();
+		transpositionPrunes.reset();
+		comboCalls.reset();
+		comboNanos.reset();
+		limit = 0;
+		startNanos = System.nanoTime();
+		isRunning = true;
+	}
+
+	/*
+	 * Called when a search ends.
+	 */
+	void end() {
+		endNanos = System.nanoTime();
+		isRunning = false;
+	}
+
+	/**
+	 * Create a recorder counting into this statistics. A recorder is meant to
+	 * be used by a single thread.
+	 *
+	 * @return a new recorder
+	 */
+	public Recorder newRecorder() {
+		return new Recorder();
+	}
+
+	/**
+	 * Set the limit of cost currently searched, for algorithms having one.
+	 *
+	 * @param limit
+	 *            the current limit
+	 */
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns the limit of cost currently searched.
+	 *
+	 * @return the current limit; <code>0</code> if not set
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Returns the number of nodes expanded.
+	 *
+	 * @return the number of nodes expanded
+	 */
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	/**
+	 * Returns the number of moves pruned by the {@link PathRestriction}.
+	 *
+	 * @return the number of moves pruned by the restriction
+	 */
+	public long getRestrictionPrunes() {
+		return restrictionPrunes.sum();
+	}
+
+	/**
+	 * Returns the number of nodes pruned by the bound of cost.
+	 *
+	 * @return the number of nodes pruned by the cost bound
+	 */
+	public long getCostPrunes() {
+		return costPrunes.sum();
+	}
+
+	/**
+	 * Returns the number of nodes pruned by a transposition table.
+	 *
+	 * @return the number of nodes pruned as revisited
+	 */
+	public long getTranspositionPrunes() {
+		return transpositionPrunes.sum();
+	}
+
+	/**
+	 * Returns the number of times combo are evaluated.
+	 *
+	 * @return the number of combo evaluations
+	 */
+	public long getComboCalls() {
+		return comboCalls.sum();
+	}
+
+	/**
+	 * Returns the estimated time spent on evaluating combo. Only one of every
+	 * {@value Recorder#SAMPLE_PERIOD} evaluations is timed, as reading the
+	 * clock costs as much as a cheap evaluation.
+	 *
+	 * @param unit
+	 *            the unit of the result
+	 * @return the estimated time spent
+	 */
+	public long getComboTime(TimeUnit unit) {
+		return unit.convert(comboNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the time elapsed since the search started, until it ended if it
+	 * has ended.
+	 *
+	 * @param unit
+	 *            the unit of the result
+	 * @return the time elapsed; <code>0</code> if never started
+	 */
+	public long getElapsedTime(TimeUnit unit) {
+		long start = startNanos;
+		if (start == 0)
+			return 0;
+		long end = isRunning ? System.nanoTime() : endNanos;
+		return unit.convert(end - start, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the average number of nodes expanded per second.
+	 *
+	 * @return the nodes per second; <code>0</code> if no time elapsed
+	 */
+	public double getNodesPerSecond() {
+		long elapsed = getElapsedTime(TimeUnit.NANOSECONDS);
+		return elapsed == 0 ? 0 : getNodes() * 1e9 / elapsed;
+	}
+
+	/**
+	 * Determines whether the search is running.
+	 *
+	 * @return <code>true</code> if running; <code>false</code> otherwise
+	 */
+	public boolean isRunning() {
+		return isRunning;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"limit=%d nodes=%d (%.0f/s) pruned: restriction=%d cost=%d transposition=%d combo: %d calls %d ms",
+				getLimit(), getNodes(), getNodesPerSecond(),
+				getRestrictionPrunes(), getCostPrunes(),
+				getTranspositionPrunes(), getComboCalls(),
+				getComboTime(TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Counts events of a single searching thread with plain fields, and adds
+	 * them to the statistics when flushed. Flushed automatically every
+	 * {@value #FLUSH_PERIOD} nodes; the owner should flush it once more when
+	 * done.
+	 */
+	public final class Recorder {
+
+		/**
+		 * The number of combo evaluations per evaluation timed.
+		 */
+		public static final int SAMPLE_PERIOD = 16;
+
+		/**
+		 * The number of nodes expanded between automatic flushes.
+		 */
+		public static final int FLUSH_PERIOD = 4096;
+
+		/**
+		 * The number of checks of cancellation per check of the clock.
+		 */
+		public static final int POLL_PERIOD = 256;
+
+		private long nodes, restrictionPrunes, costPrunes,
+				transpositionPrunes, comboCalls, comboNanos;
+		private int polls;
+
+		private Recorder() {
+		}
+
+		/**
+		 * Record that a node is expanded.
+		 */
+		public void node() {
+			if (++nodes % FLUSH_PERIOD == 0)
+				flush();
+		}
+
+		/**
+		 * Record that a move is pruned by the restriction.
+		 */
+		public void restrictionPrune() {
+			restrictionPrunes++;
+		}
+
+		/**
+		 * Record that a node is pruned by the bound of cost.
+		 */
+		public void costPrune() {
+			costPrunes++;
+		}
+
+		/**
+		 * Record that a node is pruned by a transposition table.
+		 */
+		public void transpositionPrune() {
+			transpositionPrunes++;
+		}
+
+		/**
+		 * Evaluate combo with the specified evaluator and record it.
+		 *
+		 * @param evaluator
+		 *            the evaluator
+		 * @return the result of {@link IncrementalComboEvaluator#countCombo()}
+		 */
+		public ComboBuffer countCombo(IncrementalComboEvaluator evaluator) {
+			if (++comboCalls % SAMPLE_PERIOD != 0)
+				return evaluator.countCombo();
+			long start = System.nanoTime();
+			ComboBuffer combo = evaluator.countCombo();
+			comboNanos += (System.nanoTime() - start) * SAMPLE_PERIOD;
+			return combo;
+		}
+
+		/**
+		 * Count combo of the specified map into a buffer with the specified
+		 * counter and record it.
+		 *
+		 * @param counter
+		 *            the counter
+		 * @param map
+		 *            the map
+		 * @param buffer
+		 *            the buffer to receive the combo
+		 * @return the result of
+		 *         {@link ComboCounter#countComboInto(BitboardRuneMap, ComboBuffer)}
+		 */
+		public int countComboInto(ComboCounter counter, BitboardRuneMap map,
+				ComboBuffer buffer) {
+			if (++comboCalls % SAMPLE_PERIOD != 0)
+				return counter.countComboInto(map, buffer);
+			long start = System.nanoTime();
+			int combo = counter.countComboInto(map, buffer);
+			comboNanos += (System.nanoTime() - start) * SAMPLE_PERIOD;
+			return combo;
+		}
+
+		/**
+		 * Count a check of cancellation, and determine whether it is time to
+		 * check the clock. It is not a statistic, and never flushed.
+		 *
+		 * @return <code>true</code> once every {@value #POLL_PERIOD} calls
+		 * @see AbstractPathFinder#isStopped(Recorder)
+		 */
+		public boolean poll() {
+			return ++polls % POLL_PERIOD == 0;
+		}
+
+		/**
+		 * Add the events recorded so far to the statistics.
+		 */
+		public void flush() {
+			SearchStatistics.this.nodes.add(nodes);
+			SearchStatistics.this.restrictionPrunes.add(restrictionPrunes);
+			SearchStatistics.this.costPrunes.add(costPrunes);
+			SearchStatistics.this.transpositionPrunes.add(transpositionPrunes);
+			SearchStatistics.this.comboCalls.add(comboCalls);
+			SearchStatistics.this.comboNanos.add(comboNanos);
+			nodes = restrictionPrunes = costPrunes = transpositionPrunes = comboCalls = comboNanos = 0;
+		}
+	}
+}
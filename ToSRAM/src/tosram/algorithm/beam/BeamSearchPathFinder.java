@@ -0,0 +1,358 @@
+package tosram.algorithm.beam;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import tosram.BitboardRuneMap;
+import tosram.BoardGeometry;
+import tosram.Direction;
+import tosram.DirectionStack;
+import tosram.Path;
+import tosram.RuneMap;
+import tosram.Zobrist;
+import tosram.algorithm.AbstractPathFinder;
+import tosram.algorithm.ComboBuffer;
+import tosram.algorithm.ComboCounter;
+import tosram.algorithm.PathRestriction;
+import tosram.algorithm.SearchStatistics;
+import tosram.algorithm.idastar.CostFunction;
+
+/**
+ * Beam search algorithm. Starting from every location allowed, all moves of
+ * the states in the beam are expanded, and only a limited number of the best
+ * resulting states, ranked by the {@link CostFunction} and then by the cost of
+ * moves, are kept for the next move. States with the same map, cursor and
+ * last direction, which {@link PathRestriction}s may depend on, are kept only
+ * once. It is not optimal, but its time grows only linearly with the
+ * number of moves, so it finds long paths much faster than
+ * {@link tosram.algorithm.idastar.IDAStarPathFinder IDAStarPathFinder}.
+ * <p>
+ * The search runs on a {@link BitboardRuneMap}, so it can only handle maps
+ * satisfying <code>(width + 1) * height - 1 &lt;= 64</code>. With a
+ * parallelism greater than one, the beam is expanded by multiple threads of a
+ * {@link ForkJoinPool}, in which case the {@link ComboCounter},
+ * {@link PathRestriction} and {@link CostFunction} must be safe to use from
+ * multiple threads.
+ *
+ * @author johnchen902
+ */
+public class BeamSearchPathFinder extends AbstractPathFinder {
+
+	private static final Comparator<State> ORDER = Comparator.comparingInt(
+			(State s) -> s.h).thenComparingInt(s -> s.g);
+
+	private final CostFunction costFunc;
+	private final int beamWidth, maxDepth, parallelism;
+	/*
+	 * The cost function bound to the map being searched.
+	 */
+	private CostFunction bound;
+	private ForkJoinPool pool;
+
+	/**
+	 * A constructor with some arguments. The search is run in the calling
+	 * thread.
+	 *
+	 * @param comboer
+	 *            the algorithm to count combo
+	 * @param restrict
+	 *            the restriction about path
+	 * @param costFunc
+	 *            the function ranking states
+	 * @param beamWidth
+	 *            the number of states kept for each move
+	 * @param maxDepth
+	 *            the maximum number of moves
+	 * @throws IllegalArgumentException
+	 *             if <code>beamWidth &lt;= 0</code> or
+	 *             <code>maxDepth &lt;= 0</code>
+	 */
+	public BeamSearchPathFinder(ComboCounter comboer, PathRestriction restrict,
+			CostFunction costFunc, int beamWidth, int maxDepth) {
+		this(comboer, restrict, costFunc, beamWidth, maxDepth, 1);
+	}
+
+	/**
+	 * A constructor with some arguments and the parallelism.
+	 *
+	 * @param comboer
+	 *            the algorithm to count combo
+	 * @param restrict
+	 *            the restriction about path
+	 * @param costFunc
+	 *            the function ranking states
+	 * @param beamWidth
+	 *            the number of states kept for each move
+	 * @param maxDepth
+	 *            the maximum number of moves
+	 * @param parallelism
+	 *            the number of threads to expand the beam with;
+	 *            <code>1</code> to search in the calling thread
+	 * @throws IllegalArgumentException
+	 *             if any of <code>beamWidth</code>, <code>maxDepth</code> and
+	 *             <code>parallelism</code> is not positive
+	 */
+	public BeamSearchPathFinder(ComboCounter comboer, PathRestriction restrict,
+			CostFunction costFunc, int beamWidth, int maxDepth, int parallelism) {
+		super(comboer, restrict);
+		if (beamWidth <= 0)
+			throw new IllegalArgumentException("beamWidth <= 0");
+		if (maxDepth <= 0)
+			throw new IllegalArgumentException("maxDepth <= 0");
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism <= 0");
+		this.costFunc = Objects.requireNonNull(costFunc);
+		this.beamWidth = beamWidth;
+		this.maxDepth = maxDepth;
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	protected void findPath(RuneMap initialMap) {
+		bound = costFunc.bind(initialMap);
+		BitboardRuneMap map = new BitboardRuneMap(initialMap);
+		BoardGeometry geometry = BoardGeometry.of(map.getWidth(),
+				map.getHeight());
+		List<State> beam = new ArrayList<>();
+		for (int x = 0; x < map.getWidth(); x++)
+			for (int y = 0; y < map.getHeight(); y++)
+				if (canStart(x, y, map))
+					beam.add(new State(map, x, y));
+
+		ForkJoinPool pool = parallelism == 1 ? null : getPool();
+		State best = null;
+		for (int depth = 1; depth <= maxDepth && !beam.isEmpty()
+				&& !isStopped(); depth++) {
+			getStatistics().setLimit(depth);
+			State[] children = expandAll(beam, geometry, pool);
+			if (isStopped())
+				break;
+			Arrays.sort(children, ORDER);
+			beam = select(children);
+			if (!beam.isEmpty()
+					&& (best == null || ORDER.compare(beam.get(0), best) < 0)) {
+				best = beam.get(0);
+				report(best);
+				if (best.h == 0)
+					break;
+			}
+		}
+	}
+
+	/*
+	 * The pool is kept between searches, which are often short; its idle
+	 * threads end by themselves.
+	 */
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null)
+			pool = new ForkJoinPool(parallelism);
+		return pool;
+	}
+
+	/*
+	 * Expand every state in the beam, in chunks if in parallel.
+	 */
+	private State[] expandAll(List<State> beam, BoardGeometry geometry,
+			ForkJoinPool pool) {
+		if (pool == null)
+			return new Expander(beam, geometry).call().toArray(new State[0]);
+		int chunks = Math.min(beam.size(), parallelism * 4);
+		List<Callable<List<State>>> tasks = new ArrayList<>(chunks);
+		for (int i = 0; i < chunks; i++)
+			tasks.add(new Expander(beam.subList(beam.size() * i / chunks,
+					beam.size() * (i + 1) / chunks), geometry));
+		List<State> children = new ArrayList<>();
+		try {
+			for (Future<List<State>> future : pool.invokeAll(tasks))
+				children.addAll(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stop();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		return children.toArray(new State[0]);
+	}
+
+	/*
+	 * The first beamWidth states of distinct maps and cursors.
+	 */
+	private List<State> select(State[] sorted) {
+		List<State> beam = new ArrayList<>(Math.min(beamWidth, sorted.length));
+		LongHashSet seen = new LongHashSet(Math.min(sorted.length,
+				beamWidth * 2));
+		for (State state : sorted) {
+			if (beam.size() == beamWidth)
+				break;
+			if (seen.add(state.key))
+				beam.add(state);
+		}
+		return beam;
+	}
+
+	private void report(State state) {
+		DirectionStack directions = new DirectionStack();
+		Direction[] reversed = new Direction[state.depth];
+		for (State s = state; s.parent != null; s = s.parent)
+			reversed[s.depth - 1] = s.direction;
+		for (Direction d : reversed)
+			directions.push(d);
+		Path path = new Path(state.startX, state.startY, directions);
+		String descr = bound.describe(state.map, countCombo(state.map));
+		descr += " " + state.depth + " Move";
+		result(path, descr);
+	}
+
+	/*
+	 * Expands states with its own buffer and recorder.
+	 */
+	private final class Expander implements Callable<List<State>> {
+		private final List<State> states;
+		private final BoardGeometry geometry;
+		private final boolean diagonal = allowsDiagonalMoves();
+		private final ComboBuffer buffer = new ComboBuffer(
+				bound.requiresComboDetails());
+		private final SearchStatistics.Recorder recorder = getStatistics()
+				.newRecorder();
+
+		private Expander(List<State> states, BoardGeometry geometry) {
+			this.states = states;
+			this.geometry = geometry;
+		}
+
+		@Override
+		public List<State> call() {
+			List<State> children = new ArrayList<>(states.size() * 4);
+			try {
+				for (State state : states) {
+					if (isStopped(recorder))
+						break;
+					expand(state, children);
+				}
+			} finally {
+				recorder.flush();
+			}
+			return children;
+		}
+
+		private void expand(State state, List<State> children) {
+			recorder.node();
+			List<Direction> directions = state.directions();
+			for (int move : geometry.getMoves(state.x, state.y, diagonal)) {
+				Direction d = BoardGeometry.direction(move);
+				int x2 = BoardGeometry.x(move), y2 = BoardGeometry.y(move);
+				if (!canMove(state.startX, state.startY, directions, d, x2, y2,
+						state.map)) {
+					recorder.restrictionPrune();
+					continue;
+				}
+				BitboardRuneMap map = new BitboardRuneMap(state.map);
+				map.swap(state.x, state.y, x2, y2);
+				countComboInto(map, buffer, recorder);
+				int h = bound.estimateCost(map, buffer);
+				children.add(new State(state, d, map, x2, y2, h,
+						state.g + bound.costOfMove(d)));
+			}
+		}
+	}
+
+	/*
+	 * A node of the search tree; immutable once created.
+	 */
+	private static final class State {
+		private final BitboardRuneMap map;
+		private final State parent;
+		private final Direction direction;
+		private final int startX, startY, x, y, depth, h, g;
+		private final long key;
+
+		private State(BitboardRuneMap map, int x, int y) {
+			this.map = map;
+			this.parent = null;
+			this.direction = null;
+			this.startX = this.x = x;
+			this.startY = this.y = y;
+			this.depth = 0;
+			this.h = Integer.MAX_VALUE;
+			this.g = 0;
+			this.key = map.getZobristHash() ^ Zobrist.cursorKey(x, y, null);
+		}
+
+		private State(State parent, Direction direction, BitboardRuneMap map,
+				int x, int y, int h, int g) {
+			this.map = map;
+			this.parent = parent;
+			this.direction = direction;
+			this.startX = parent.startX;
+			this.startY = parent.startY;
+			this.x = x;
+			this.y = y;
+			this.depth = parent.depth + 1;
+			this.h = h;
+			this.g = g;
+			this.key = map.getZobristHash() ^ Zobrist.cursorKey(x, y, direction);
+		}
+
+		/*
+		 * The directions moved to reach this state, as a view walking up the
+		 * tree; getting the last few directions is cheap.
+		 */
+		private List<Direction> directions() {
+			return new AbstractList<Direction>() {
+				@Override
+				public Direction get(int index) {
+					if (index < 0 || index >= depth)
+						throw new IndexOutOfBoundsException("index=" + index);
+					State s = State.this;
+					for (int i = depth - 1; i > index; i--)
+						s = s.parent;
+					return s.direction;
+				}
+
+				@Override
+				public int size() {
+					return depth;
+				}
+			};
+		}
+	}
+
+	/*
+	 * A set of long by open addressing, for eliminating duplicate states.
+	 */
+	private static final class LongHashSet {
+		private final long[] keys;
+		private final boolean[] used;
+		private final int mask;
+
+		private LongHashSet(int expected) {
+			int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+			keys = new long[capacity];
+			used = new boolean[capacity];
+			mask = capacity - 1;
+		}
+
+		/*
+		 * Returns false if already present.
+		 */
+		private boolean add(long key) {
+			int i = (int) (key ^ key >>> 32) & mask;
+			while (used[i]) {
+				if (keys[i] == key)
+					return false;
+				i = (i + 1) & mask;
+			}
+			used[i] = true;
+			keys[i] = key;
+			return true;
+		}
+	}
+}
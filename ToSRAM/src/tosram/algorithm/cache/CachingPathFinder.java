@@ -0,0 +1,213 @@
+package tosram.algorithm.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import tosram.Path;
+import tosram.RuneMap;
+import tosram.algorithm.AbstractPathFinder;
+import tosram.algorithm.Canonicalizer;
+import tosram.algorithm.CancellationToken;
+import tosram.algorithm.ComboCounter;
+import tosram.algorithm.PathFinder;
+import tosram.algorithm.SearchResult;
+
+/**
+ * A <code>PathFinder</code> consulting a {@link SolutionStore} before
+ * searching. The solution stored, if any, is reported first; if it was proved
+ * optimal, there is no search at all. Otherwise the underlying
+ * <code>PathFinder</code> searches as usual, only results better than the
+ * stored solution are reported, and the best of them is stored when the
+ * search ends. A path is better if it makes more combo, or as many combo with
+ * fewer moves.
+ * 
+ * @author johnchen902
+ */
+public class CachingPathFinder implements PathFinder {
+
+	private final PathFinder pathFinder;
+	private final SolutionStore store;
+	private final String configuration;
+	private final ComboCounter comboCounter;
+	private final Canonicalizer canonicalizer;
+
+	/**
+	 * Constructor specifying everything.
+	 * 
+	 * @param pathFinder
+	 *            the <code>PathFinder</code> to search with
+	 * @param store
+	 *            the store of solutions
+	 * @param configuration
+	 *            the identity of the restriction and the criteria of
+	 *            <code>pathFinder</code>; solutions are shared only between
+	 *            finders of the same configuration
+	 * @param comboCounter
+	 *            the algorithm to count combo when comparing paths
+	 */
+	public CachingPathFinder(PathFinder pathFinder, SolutionStore store,
+			String configuration, ComboCounter comboCounter) {
+		this(pathFinder, store, configuration, comboCounter, new Canonicalizer(
+				false, false));
+	}
+
+	/**
+	 * Constructor specifying everything, including the canonicalizer, so that
+	 * solutions are shared between equivalent maps. Solutions are stored
+	 * under the canonical map, so the canonicalizer must exploit no symmetry
+	 * the restriction or the criteria of <code>pathFinder</code> lack.
+	 * 
+	 * @param pathFinder
+	 *            the <code>PathFinder</code> to search with
+	 * @param store
+	 *            the store of solutions
+	 * @param configuration
+	 *            the identity of the restriction and the criteria of
+	 *            <code>pathFinder</code>; solutions are shared only between
+	 *            finders of the same configuration
+	 * @param comboCounter
+	 *            the algorithm to count combo when comparing paths
+	 * @param canonicalizer
+	 *            the canonicalizer of the maps to look up and store
+	 * @see Canonicalizer#of(tosram.algorithm.PathRestriction,
+	 *      tosram.algorithm.idastar.CostFunction)
+	 */
+	public CachingPathFinder(PathFinder pathFinder, SolutionStore store,
+			String configuration, ComboCounter comboCounter,
+			Canonicalizer canonicalizer) {
+		this.pathFinder = Objects.requireNonNull(pathFinder);
+		this.store = Objects.requireNonNull(store);
+		this.configuration = Objects.requireNonNull(configuration);
+		this.comboCounter = Objects.requireNonNull(comboCounter);
+		this.canonicalizer = Objects.requireNonNull(canonicalizer);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws UncheckedIOException
+	 *             if the solution cannot be stored
+	 */
+	@Override
+	public void findPath(RuneMap initialMap, BiConsumer<Path, String> callBack) {
+		Canonicalizer.Form form = canonicalizer.canonicalize(initialMap);
+		Solution cached = lookup(form);
+		if (cached != null) {
+			callBack.accept(cached.getPath(), cached.getDescription());
+			if (cached.isOptimal())
+				return;
+		}
+		Best best = new Best(initialMap, cached, callBack);
+		pathFinder.findPath(initialMap, best);
+		boolean optimal = pathFinder instanceof AbstractPathFinder
+				&& ((AbstractPathFinder) pathFinder).isOptimal();
+		save(form, cached, best.solution, optimal);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * As with {@link #findPath(RuneMap, BiConsumer)}, the stored solution is
+	 * reported first, and returned instead if it is better than the one
+	 * found, or is optimal.
+	 * 
+	 * @throws UncheckedIOException
+	 *             if the solution cannot be stored
+	 */
+	@Override
+	public SearchResult findPath(RuneMap initialMap, CancellationToken token,
+			BiConsumer<Path, String> callBack) {
+		long start = System.nanoTime();
+		Canonicalizer.Form form = canonicalizer.canonicalize(initialMap);
+		Solution cached = lookup(form);
+		if (cached != null) {
+			callBack.accept(cached.getPath(), cached.getDescription());
+			if (cached.isOptimal())
+				return new SearchResult(cached.getPath(),
+						cached.getDescription(), true, true,
+						Duration.ofNanos(System.nanoTime() - start));
+		}
+		Best best = new Best(initialMap, cached, callBack);
+		SearchResult result = pathFinder.findPath(initialMap, token, best);
+		save(form, cached, best.solution, result.isOptimal());
+		if (best.solution == null)
+			return result;
+		return new SearchResult(best.solution.getPath(),
+				best.solution.getDescription(),
+				result.isComplete(), result.isOptimal(),
+				Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	@Override
+	public void stop() {
+		pathFinder.stop();
+	}
+
+	/*
+	 * The solution stored for the canonical map, on the original map.
+	 */
+	private Solution lookup(Canonicalizer.Form form) {
+		Solution stored = store.get(form.getMap(), configuration);
+		if (stored == null || !form.isMirrored())
+			return stored;
+		return new Solution(form.toOriginal(stored.getPath()),
+				stored.getDescription(), stored.isOptimal());
+	}
+
+	/*
+	 * Store the best solution if it is new or newly proved optimal.
+	 */
+	private void save(Canonicalizer.Form form, Solution cached, Solution best,
+			boolean optimal) {
+		if (best == null || best == cached && !optimal)
+			return;
+		try {
+			store.put(form.getMap(), configuration, new Solution(
+					form.toCanonical(best.getPath()), best.getDescription(),
+					optimal));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private int countCombo(RuneMap map, Path path) {
+		return comboCounter.countCombo(Path.follow(map, path).toMutable())
+				.size();
+	}
+
+	/*
+	 * Reports only the paths better than the best so far, remembering the
+	 * combo of the best so that each path found is followed only once.
+	 */
+	private final class Best implements BiConsumer<Path, String> {
+
+		private final RuneMap map;
+		private final BiConsumer<Path, String> callBack;
+		private Solution solution;
+		private int combo;
+
+		Best(RuneMap map, Solution cached, BiConsumer<Path, String> callBack) {
+			this.map = map;
+			this.callBack = callBack;
+			this.solution = cached;
+			if (cached != null)
+				combo = countCombo(map, cached.getPath());
+		}
+
+		@Override
+		public void accept(Path path, String description) {
+			int pathCombo = countCombo(map, path);
+			if (solution != null
+					&& (pathCombo < combo || pathCombo == combo
+							&& path.getDirections().size() >= solution
+									.getPath().getDirections().size()))
+				return;
+			solution = new Solution(path, description, false);
+			combo = pathCombo;
+			callBack.accept(path, description);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package tosram.algorithm.cache;
+
+import java.util.Objects;
+
+import tosram.Path;
+
+/**
+ * A path stored in a {@link SolutionStore}, with its description and whether
+ * it was proved optimal.
+ * 
+ * @author johnchen902
+ */
+public final class Solution {
+
+	private final Path path;
+	private final String description;
+	private final boolean optimal;
+
+	/**
+	 * Constructor specifying everything.
+	 * 
+	 * @param path
+	 *            the path
+	 * @param description
+	 *            the description of <code>path</code>
+	 * @param optimal
+	 *            <code>true</code> if no better path can be found
+	 */
+	public Solution(Path path, String description, boolean optimal) {
+		this.path = Objects.requireNonNull(path);
+		this.description = Objects.requireNonNull(description);
+		this.optimal = optimal;
+	}
+
+	/**
+	 * Returns the path.
+	 * 
+	 * @return the path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the description of the path.
+	 * 
+	 * @return the description
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Determines whether no better path can be found.
+	 * 
+	 * @return <code>true</code> if optimal; <code>false</code> otherwise
+	 */
+	public boolean isOptimal() {
+		return optimal;
+	}
+
+	@Override
+	public String toString() {
+		return "Solution[path=" + path + ", description=" + description
+				+ ", optimal=" + optimal + "]";
+	}
+}
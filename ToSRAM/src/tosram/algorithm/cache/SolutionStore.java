@@ -0,0 +1,270 @@
+package tosram.algorithm.cache;
+
+import java.awt.Point;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import tosram.Direction;
+import tosram.Path;
+import tosram.RuneMap;
+import tosram.RuneMapCodec;
+
+/**
+ * A persistent map from boards to the best {@link Solution} found. A board is
+ * keyed by its stones together with a configuration string, which should
+ * identify the restriction and the cost function used to find the solution,
+ * as a path is only good under the criteria it was found with.
+ * <p>
+ * Solutions are appended to a memory-mapped file and never overwritten; a
+ * later solution of the same key replaces the earlier one in the in-memory
+ * index, which is rebuilt by scanning the file when opened. Each record is
+ * checksummed, so a record partially written by a crash ends the scan and is
+ * overwritten by the next solution stored. All methods are synchronized.
+ * 
+ * @author johnchen902
+ */
+public final class SolutionStore implements Closeable {
+
+	private static final int MAGIC = 0x546f5352; // "ToSR"
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 8;
+	private static final int RECORD_HEADER_SIZE = 8;
+	private static final int INITIAL_CAPACITY = 1 << 16;
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private final FileChannel channel;
+	private final Map<Key, Solution> index = new HashMap<>();
+	private MappedByteBuffer buffer;
+	private int end;
+
+	/**
+	 * Open a store, creating the file if it does not exist.
+	 * 
+	 * @param file
+	 *            the file backing the store
+	 * @throws IOException
+	 *             if an I/O error occurs, or the file is not a solution store
+	 */
+	public SolutionStore(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("File too large: " + file);
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					Math.max(size, INITIAL_CAPACITY));
+			if (size == 0) {
+				buffer.putInt(0, MAGIC);
+				buffer.putInt(4, VERSION);
+			} else if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC
+					|| buffer.getInt(4) != VERSION) {
+				throw new IOException("Not a solution store: " + file);
+			}
+			end = scan();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * Index every intact record, and return where the next one goes.
+	 */
+	private int scan() {
+		int position = HEADER_SIZE;
+		while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+			int length = buffer.getInt(position);
+			if (length <= 0
+					|| length > buffer.capacity() - position
+							- RECORD_HEADER_SIZE)
+				break;
+			byte[] payload = new byte[length];
+			buffer.position(position + RECORD_HEADER_SIZE);
+			buffer.get(payload);
+			if (checksum(payload) != buffer.getInt(position + 4))
+				break;
+			Record record = Record.decode(payload);
+			index.put(record.key, record.solution);
+			position += RECORD_HEADER_SIZE + length;
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the solution stored for the specified board and configuration.
+	 * 
+	 * @param map
+	 *            the board
+	 * @param configuration
+	 *            the configuration the solution was found with
+	 * @return the latest solution stored; <code>null</code> if none
+	 */
+	public synchronized Solution get(RuneMap map, String configuration) {
+		ensureOpen();
+		return index.get(new Key(map, configuration));
+	}
+
+	/**
+	 * Store a solution for the specified board and configuration, replacing
+	 * the one stored before, if any.
+	 * 
+	 * @param map
+	 *            the board
+	 * @param configuration
+	 *            the configuration the solution was found with
+	 * @param solution
+	 *            the solution
+	 * @throws IOException
+	 *             if the file cannot be extended
+	 */
+	public synchronized void put(RuneMap map, String configuration,
+			Solution solution) throws IOException {
+		ensureOpen();
+		Record record = new Record(new Key(map, configuration), solution);
+		byte[] payload = record.encode();
+		int required = end + RECORD_HEADER_SIZE + payload.length;
+		if (required < 0)
+			throw new IOException("Solution store full");
+		if (required > buffer.capacity()) {
+			int capacity = buffer.capacity();
+			while (capacity < required)
+				capacity = capacity > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE
+						: capacity * 2;
+			buffer.force();
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		}
+		buffer.position(end + RECORD_HEADER_SIZE);
+		buffer.put(payload);
+		buffer.putInt(end + 4, checksum(payload));
+		// the length last, so that the record is not seen until complete
+		buffer.putInt(end, payload.length);
+		end = required;
+		index.put(record.key, solution);
+	}
+
+	/**
+	 * Returns the number of boards with a solution stored.
+	 * 
+	 * @return the number of boards
+	 */
+	public synchronized int size() {
+		ensureOpen();
+		return index.size();
+	}
+
+	/**
+	 * Write everything stored to the file, and close the store.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!channel.isOpen())
+			return;
+		buffer.force();
+		channel.close();
+		index.clear();
+	}
+
+	private void ensureOpen() {
+		if (!channel.isOpen())
+			throw new IllegalStateException("Closed");
+	}
+
+	private static int checksum(byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		return (int) crc.getValue();
+	}
+
+	/*
+	 * The configuration and the binary form of a board.
+	 */
+	private static final class Key {
+		private final byte[] bytes;
+
+		private Key(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		private Key(RuneMap map, String configuration) {
+			byte[] config = configuration.getBytes(StandardCharsets.UTF_8);
+			ByteBuffer buffer = ByteBuffer.allocate(config.length + 1
+					+ RuneMapCodec.encodedLength(map.getWidth(), map.getHeight()));
+			buffer.put(config).put((byte) 0);
+			RuneMapCodec.write(map, buffer);
+			bytes = buffer.array();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(bytes, ((Key) obj).bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(bytes);
+		}
+	}
+
+	/*
+	 * A key and its solution, as stored in the file.
+	 */
+	private static final class Record {
+		private final Key key;
+		private final Solution solution;
+
+		private Record(Key key, Solution solution) {
+			this.key = key;
+			this.solution = solution;
+		}
+
+		private byte[] encode() {
+			Path path = solution.getPath();
+			List<Direction> directions = path.getDirections();
+			byte[] description = solution.getDescription().getBytes(
+					StandardCharsets.UTF_8);
+			ByteBuffer out = ByteBuffer.allocate(4
+					+ key.bytes.length + 1 + 8 + 4 + directions.size() + 4
+					+ description.length);
+			out.putInt(key.bytes.length).put(key.bytes);
+			out.put((byte) (solution.isOptimal() ? 1 : 0));
+			out.putInt(path.getBeginX()).putInt(path.getBeginY());
+			out.putInt(directions.size());
+			for (Direction d : directions)
+				out.put((byte) d.ordinal());
+			out.putInt(description.length).put(description);
+			return out.array();
+		}
+
+		private static Record decode(byte[] payload) {
+			ByteBuffer in = ByteBuffer.wrap(payload);
+			byte[] key = new byte[in.getInt()];
+			in.get(key);
+			boolean optimal = in.get() != 0;
+			int x = in.getInt(), y = in.getInt();
+			List<Direction> directions = new ArrayList<>();
+			for (int i = in.getInt(); i > 0; i--)
+				directions.add(DIRECTIONS[in.get()]);
+			byte[] description = new byte[in.getInt()];
+			in.get(description);
+			Path path = new Path(new Point(x, y), directions);
+			return new Record(new Key(key), new Solution(path, new String(
+					description, StandardCharsets.UTF_8), optimal));
+		}
+	}
+}
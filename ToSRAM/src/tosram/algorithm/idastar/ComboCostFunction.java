@@ -2,9 +2,13 @@ package tosram.algorithm.idastar;
 
 import java.util.List;
 
+import tosram.BitboardRuneMap;
 import tosram.Direction;
 import tosram.MutableRuneMap;
+import tosram.RuneMap;
+import tosram.algorithm.ComboBuffer;
 import tosram.algorithm.ComboCounter.Combo;
+import tosram.algorithm.MaxComboCalculator;
 
 /**
  * The cost function considering numbers of combo. A diagonal move cost twice as
@@ -14,6 +18,12 @@ import tosram.algorithm.ComboCounter.Combo;
  */
 public class ComboCostFunction implements CostFunction {
 
+	/**
+	 * The expected combo of a cost function expecting the maximum combo of
+	 * each map searched.
+	 */
+	protected static final int UNBOUND = -1;
+
 	private final int factor;
 	private final int maxCombo;
 
@@ -30,6 +40,39 @@ public class ComboCostFunction implements CostFunction {
 		this.maxCombo = expectedCombo;
 	}
 
+	/**
+	 * A cost function assuming each combo worth the specified numbers of
+	 * moves, expecting the maximum combo of each map searched, as given by
+	 * {@link MaxComboCalculator#getMaxCombo(RuneMap)}. It must be bound to a
+	 * map before estimating any cost, which path finders do.
+	 * 
+	 * @param costPerCombo
+	 *            the number of moves each combo worths.
+	 * @see #bind(RuneMap)
+	 */
+	public ComboCostFunction(int costPerCombo) {
+		this(costPerCombo, UNBOUND);
+	}
+
+	/**
+	 * Returns the number of moves each combo worths.
+	 * 
+	 * @return the number of moves each combo worths
+	 */
+	public int getCostPerCombo() {
+		return factor;
+	}
+
+	/**
+	 * Returns the number of combo expected.
+	 * 
+	 * @return the number of combo expected; {@link #UNBOUND} if the maximum
+	 *         combo of each map is expected
+	 */
+	public int getExpectedCombo() {
+		return maxCombo;
+	}
+
 	@Override
 	public int costOfMove(Direction direction) {
 		return direction.isDiagonal() ? 2 : 1;
@@ -40,8 +83,77 @@ public class ComboCostFunction implements CostFunction {
 		return Math.max(0, factor * (maxCombo - combo.size()));
 	}
 
+	@Override
+	public int estimateCost(BitboardRuneMap map, List<Combo> combo) {
+		return Math.max(0, factor * (maxCombo - combo.size()));
+	}
+
+	@Override
+	public int estimateCost(BitboardRuneMap map, ComboBuffer combo) {
+		return Math.max(0, factor * (maxCombo - combo.size()));
+	}
+
+	@Override
+	public boolean requiresComboDetails() {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If constructed without the number of combo expected, it returns one
+	 * expecting the maximum combo of the map.
+	 */
+	@Override
+	public CostFunction bind(RuneMap initialMap) {
+		if (maxCombo != UNBOUND)
+			return this;
+		return new ComboCostFunction(factor,
+				MaxComboCalculator.getMaxCombo(initialMap));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * No map achievable makes more combo than
+	 * {@link MaxComboCalculator#getMaxCombo(RuneMap)}, so if less combo than
+	 * expected are possible, the cost of the missing combo is the minimum.
+	 */
+	@Override
+	public int getMinimumCost(RuneMap initialMap) {
+		return Math.max(0, factor
+				* (maxCombo - MaxComboCalculator.getMaxCombo(initialMap)));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Returns <code>true</code>, as the cost only depends on the number of
+	 * combo, which mirroring keeps, and whether moves are diagonal.
+	 */
+	@Override
+	public boolean isMirrorSymmetric() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Returns <code>true</code>, as the cost only depends on the number of
+	 * combo and whether moves are diagonal.
+	 */
+	@Override
+	public boolean isColorAgnostic() {
+		return true;
+	}
+
 	@Override
 	public String describe(MutableRuneMap map, List<Combo> combo) {
 		return String.format("%d/%d Combo", combo.size(), maxCombo);
 	}
+
+	@Override
+	public String describe(BitboardRuneMap map, List<Combo> combo) {
+		return String.format("%d/%d Combo", combo.size(), maxCombo);
+	}
 }
@@ -2,9 +2,11 @@ package tosram.algorithm.idastar;
 
 import java.util.List;
 
+import tosram.BitboardRuneMap;
 import tosram.Direction;
 import tosram.MutableRuneMap;
 import tosram.RuneMap;
+import tosram.algorithm.ComboBuffer;
 import tosram.algorithm.ComboCounter.Combo;
 
 /**
@@ -53,4 +55,107 @@ public interface CostFunction {
 	 * @return a user-friendly textual description
 	 */
 	public String describe(MutableRuneMap map, List<Combo> combo);
+
+	/**
+	 * Estimate the cost required to move to the best possible map from the
+	 * provided map. The default implementation converts the map to a
+	 * <code>MutableRuneMap</code>.
+	 * 
+	 * @see #estimateCost(MutableRuneMap, List)
+	 */
+	public default int estimateCost(BitboardRuneMap map, List<Combo> combo) {
+		return estimateCost(map.toMutable(), combo);
+	}
+
+	/**
+	 * Estimate the cost required to move to the best possible map from the
+	 * provided map, with combo information in a buffer. The buffer records
+	 * every combo unless {@link #requiresComboDetails()} returns
+	 * <code>false</code>. The default implementation converts the buffer to a
+	 * list.
+	 * 
+	 * @see #estimateCost(BitboardRuneMap, List)
+	 */
+	public default int estimateCost(BitboardRuneMap map, ComboBuffer combo) {
+		return estimateCost(map, combo.toList());
+	}
+
+	/**
+	 * Determines whether {@link #estimateCost(BitboardRuneMap, ComboBuffer)}
+	 * requires more than the number of combo. If not, the caller may count
+	 * combo with a {@link ComboBuffer} not recording.
+	 * 
+	 * @return <code>true</code> if every combo should be recorded;
+	 *         <code>false</code> if only the number of combo is needed
+	 */
+	public default boolean requiresComboDetails() {
+		return true;
+	}
+
+	/**
+	 * Returns the cost function to search from the provided map with, so that
+	 * one cost function, and one path finder, may search from different maps
+	 * one after another. Path finders call it at the start of every search.
+	 * The default implementation returns <code>this</code>.
+	 * 
+	 * @param initialMap
+	 *            the starting map
+	 * @return the cost function for <code>initialMap</code>
+	 */
+	public default CostFunction bind(RuneMap initialMap) {
+		return this;
+	}
+
+	/**
+	 * Returns a lower bound of the estimated cost of every map achievable from
+	 * the provided map. Once a map of this cost is found, no better map can
+	 * be, so the search may end there. The default implementation returns
+	 * <code>0</code>.
+	 * 
+	 * @param initialMap
+	 *            the starting map
+	 * @return the minimum estimated cost
+	 * @see #estimateCost(MutableRuneMap, List)
+	 */
+	public default int getMinimumCost(RuneMap initialMap) {
+		return 0;
+	}
+
+	/**
+	 * Determines whether the costs of a map and a move are the same as those
+	 * of the map and the move mirrored left to right. Mirroring top to bottom
+	 * is not considered, as stones fall downward after dissolving. The default
+	 * implementation returns <code>false</code>.
+	 * 
+	 * @return <code>true</code> if symmetric; <code>false</code> if not or
+	 *         unknown
+	 * @see tosram.algorithm.Canonicalizer
+	 */
+	public default boolean isMirrorSymmetric() {
+		return false;
+	}
+
+	/**
+	 * Determines whether the cost of a map is the same as that of the map
+	 * with the colors of stones, other than {@link tosram.RuneStone#UNKNOWN
+	 * UNKNOWN}, permuted. The default implementation returns
+	 * <code>false</code>.
+	 * 
+	 * @return <code>true</code> if agnostic; <code>false</code> if not or
+	 *         unknown
+	 * @see tosram.algorithm.Canonicalizer
+	 */
+	public default boolean isColorAgnostic() {
+		return false;
+	}
+
+	/**
+	 * Get a user-friendly textual description of the provided map. The
+	 * default implementation converts the map to a <code>MutableRuneMap</code>.
+	 * 
+	 * @see #describe(MutableRuneMap, List)
+	 */
+	public default String describe(BitboardRuneMap map, List<Combo> combo) {
+		return describe(map.toMutable(), combo);
+	}
 }
@@ -0,0 +1,129 @@
+package tosram.algorithm.idastar;
+
+import java.util.List;
+
+import tosram.BitboardRuneMap;
+import tosram.MutableRuneMap;
+import tosram.RuneMap;
+import tosram.RuneStone;
+import tosram.algorithm.ComboBuffer;
+import tosram.algorithm.ComboCounter.Combo;
+import tosram.algorithm.MaxComboCalculator;
+
+/**
+ * The cost function considering numbers of combo and how the stones are
+ * distributed. On top of {@link ComboCostFunction}, while combo are missing,
+ * it adds one for each kind of stones with at least three stones but not even
+ * two of them within a line of three. It guides the search across the
+ * plateaus where every map has the same number of combo, which is most of the
+ * search tree.
+ * <p>
+ * The added term is capped at one less than the cost per combo, so a map with
+ * more combo always costs less; the term is thus a tie-breaker between maps
+ * of the same number of combo rather than a tighter bound. Like the
+ * combo-based estimate, it is not strictly admissible in moves, as stones
+ * falling after dissolving may make any number of combo; prefer
+ * {@link ComboCostFunction} where the optimality of the result matters more
+ * than the time to find a good one.
+ * <p>
+ * Every kind of stones and every line are treated alike, so it is as mirror
+ * symmetric and color agnostic as {@link ComboCostFunction}.
+ * 
+ * @author johnchen902
+ */
+public class DistributionCostFunction extends ComboCostFunction {
+
+	private static final RuneStone[] STONES = RuneStone.values();
+	private static final int KINDS = RuneStone.UNKNOWN.ordinal();
+
+	/**
+	 * A cost function assuming each combo worth the specified numbers of moves.
+	 * 
+	 * @param costPerCombo
+	 *            the number of moves each combo worths.
+	 * @param expectedCombo
+	 *            the number of combo expected
+	 */
+	public DistributionCostFunction(int costPerCombo, int expectedCombo) {
+		super(costPerCombo, expectedCombo);
+	}
+
+	/**
+	 * A cost function assuming each combo worth the specified numbers of
+	 * moves, expecting the maximum combo of each map searched.
+	 * 
+	 * @param costPerCombo
+	 *            the number of moves each combo worths.
+	 * @see ComboCostFunction#ComboCostFunction(int)
+	 */
+	public DistributionCostFunction(int costPerCombo) {
+		super(costPerCombo);
+	}
+
+	@Override
+	public CostFunction bind(RuneMap initialMap) {
+		if (getExpectedCombo() != UNBOUND)
+			return this;
+		return new DistributionCostFunction(getCostPerCombo(),
+				MaxComboCalculator.getMaxCombo(initialMap));
+	}
+
+	@Override
+	public int estimateCost(MutableRuneMap map, List<Combo> combo) {
+		int cost = super.estimateCost(map, combo);
+		if (cost == 0
+				|| !BitboardRuneMap.canHandle(map.getWidth(), map.getHeight()))
+			return cost;
+		return cost + tieBreaker(new BitboardRuneMap(map));
+	}
+
+	@Override
+	public int estimateCost(BitboardRuneMap map, List<Combo> combo) {
+		int cost = super.estimateCost(map, combo);
+		return cost == 0 ? 0 : cost + tieBreaker(map);
+	}
+
+	@Override
+	public int estimateCost(BitboardRuneMap map, ComboBuffer combo) {
+		int cost = super.estimateCost(map, combo);
+		return cost == 0 ? 0 : cost + tieBreaker(map);
+	}
+
+	/*
+	 * The distance, capped so that it never outweighs a combo.
+	 */
+	private int tieBreaker(BitboardRuneMap map) {
+		return Math.min(distance(map), Math.max(0, getCostPerCombo() - 1));
+	}
+
+	/*
+	 * The number of kinds of stones with at least three stones but not even two
+	 * within a line of three.
+	 */
+	private static int distance(BitboardRuneMap map) {
+		int width = map.getWidth(), height = map.getHeight(), s = width + 1;
+		// bits where a horizontal or vertical line of three may start
+		long row = width < 3 ? 0 : (1L << (width - 2)) - 1;
+		long rowStarts = 0, columnStarts = 0;
+		for (int y = 0; y < height; y++) {
+			rowStarts |= row << (y * s);
+			if (y + 2 < height)
+				columnStarts |= ((1L << width) - 1) << (y * s);
+		}
+		int distance = 0;
+		for (int i = 0; i < KINDS; i++) {
+			long m = map.getMask(STONES[i]);
+			if (Long.bitCount(m) < 3)
+				continue;
+			long a = m, b = m >>> 1, c = m >>> 2;
+			long two = ((a & b) | (a & c) | (b & c)) & rowStarts;
+			b = m >>> s;
+			c = m >>> (s + s);
+			two |= ((a & b) | (a & c) | (b & c)) & columnStarts;
+			// a line of three also has two in line
+			if (two == 0)
+				distance++;
+		}
+		return distance;
+	}
+}
@@ -1,31 +1,110 @@
 package tosram.algorithm.idastar;
 
-import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
+import tosram.BitboardRuneMap;
+import tosram.BoardGeometry;
 import tosram.Direction;
+import tosram.DirectionStack;
 import tosram.MutableRuneMap;
 import tosram.Path;
 import tosram.RuneMap;
+import tosram.Zobrist;
 import tosram.algorithm.AbstractPathFinder;
+import tosram.algorithm.Canonicalizer;
+import tosram.algorithm.ComboBuffer;
 import tosram.algorithm.ComboCounter;
+import tosram.algorithm.IncrementalComboEvaluator;
 import tosram.algorithm.PathRestriction;
+import tosram.algorithm.SearchStatistics;
 
 /**
- * Iterative-deepening A* algorithm.
- * 
+ * Iterative-deepening A* algorithm. The search runs on a
+ * {@link BitboardRuneMap} if the map satisfies
+ * <code>(width + 1) * height - 1 &lt;= 64</code>. Larger maps are searched on
+ * a {@link MutableRuneMap} in the calling thread, which is much slower.
+ * <p>
+ * With a parallelism greater than one, the starting locations of each
+ * iteration (and optionally the first few moves of each) are searched as
+ * separate tasks of a {@link ForkJoinPool}. In that case the
+ * {@link ComboCounter}, {@link PathRestriction} and {@link CostFunction} must
+ * be safe to use from multiple threads.
+ * <p>
+ * A {@link TranspositionTable} may be set to prune states revisited with no
+ * less cost. A state is identified by the map, the cursor and the last
+ * direction moved, so it assumes the restriction only depends on the last
+ * direction in the path.
+ * <p>
+ * Nodes expanded, moves pruned by the restriction and nodes pruned by the
+ * cost bound or the transposition table are recorded into
+ * {@link #getStatistics()}.
+ * <p>
+ * The search ends by itself once it finds a map as good as
+ * {@link CostFunction#getMinimumCost(RuneMap)}, or after an iteration in which
+ * no node is pruned by the cost bound, e.g. when the restriction limits the
+ * length of paths; in either case no better result can be found, and
+ * {@link #isOptimal()} returns <code>true</code>.
+ * <p>
+ * If the restriction and the cost function are mirror symmetric, a map
+ * equivalent to its own mirror image is searched from only one of each set of
+ * equivalent starting locations; see {@link Canonicalizer}.
+ * <p>
+ * Within an iteration, starting locations are searched in the order most
+ * likely to improve the result first: by the lowest estimated cost reached
+ * from each in the previous iteration, then by how close each is to a combo.
+ * The order changes only how soon results are found, not which.
+ * <p>
+ * A finder may be reused for any number of searches, one at a time. The cost
+ * function is {@linkplain CostFunction#bind(RuneMap) bound} to each map, and
+ * the per-thread search state and the pool are kept for the next search.
+ *
  * @author johnchen902
  */
 public class IDAStarPathFinder extends AbstractPathFinder {
 
 	private final CostFunction costFunc;
-	private int minGUsed, minHFound;
+	private final Canonicalizer canonicalizer;
+	private final int parallelism, splitDepth;
+	/*
+	 * The best (h, g) found so far, packed as h << 32 | g, so that a smaller
+	 * value is a better result.
+	 */
+	private final AtomicLong best = new AtomicLong();
+	/*
+	 * Whether any node was pruned by the cost bound in this iteration; if not,
+	 * a larger bound would search the same tree again.
+	 */
+	private volatile boolean pruned;
+	private volatile TranspositionTable table;
+	/*
+	 * The cost function bound to the map being searched. Written before any
+	 * task of the search starts.
+	 */
+	private CostFunction bound;
+	/*
+	 * The order of starting locations of the search; likewise written before
+	 * any task starts.
+	 */
+	private StartCellScheduler scheduler;
+	/*
+	 * Searchers kept between iterations and searches, so that their maps,
+	 * buffers and stacks are allocated only once.
+	 */
+	private final Queue<Searcher> searchers = new ConcurrentLinkedQueue<>();
+	private ForkJoinPool pool;
 
 	/**
-	 * A constructor with some arguments.
-	 * 
+	 * A constructor with some arguments. The search is run in the calling
+	 * thread.
+	 *
 	 * @param comboer
 	 *            the algorithm to count combo
 	 * @param restrict
@@ -34,55 +113,457 @@ public class IDAStarPathFinder extends AbstractPathFinder {
 	 *            the h-function of this algorithm
 	 */
 	public IDAStarPathFinder(ComboCounter comboer, PathRestriction restrict, CostFunction costFunc) {
+		this(comboer, restrict, costFunc, 1, 0);
+	}
+
+	/**
+	 * A constructor with some arguments and the settings of parallel search.
+	 *
+	 * @param comboer
+	 *            the algorithm to count combo
+	 * @param restrict
+	 *            the restriction about path
+	 * @param costFunc
+	 *            the h-function of this algorithm
+	 * @param parallelism
+	 *            the number of threads to search with; <code>1</code> to
+	 *            search in the calling thread
+	 * @param splitDepth
+	 *            the number of moves after which a task no longer forks a
+	 *            task per move; <code>0</code> to fork only per starting
+	 *            location
+	 * @throws IllegalArgumentException
+	 *             if <code>parallelism &lt;= 0</code> or
+	 *             <code>splitDepth &lt; 0</code>
+	 */
+	public IDAStarPathFinder(ComboCounter comboer, PathRestriction restrict, CostFunction costFunc, int parallelism,
+			int splitDepth) {
 		super(comboer, restrict);
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("parallelism <= 0");
+		if (splitDepth < 0)
+			throw new IllegalArgumentException("splitDepth < 0");
 		this.costFunc = Objects.requireNonNull(costFunc);
+		this.canonicalizer = Canonicalizer.of(restrict, costFunc);
+		this.parallelism = parallelism;
+		this.splitDepth = splitDepth;
+	}
+
+	/**
+	 * Returns the transposition table used.
+	 *
+	 * @return the transposition table; <code>null</code> if not used
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	/**
+	 * Set the transposition table to use from the next search.
+	 *
+	 * @param table
+	 *            the transposition table; <code>null</code> to not use one
+	 */
+	public void setTranspositionTable(TranspositionTable table) {
+		this.table = table;
+	}
+
+	private int costOf(BitboardRuneMap map) {
+		return bound.estimateCost(map, countCombo(map));
 	}
 
 	private int costOf(MutableRuneMap map) {
-		return costFunc.estimateCost(map, countCombo(map));
+		return bound.estimateCost(map, countCombo(map));
+	}
+
+	private int getMinHFound() {
+		return (int) (best.get() >>> 32);
+	}
+
+	/*
+	 * Whether another iteration may find a better result. If not and the
+	 * search is not stopped, the result is optimal.
+	 */
+	private boolean hasNextIteration(int minCost) {
+		if (isStopped())
+			return false;
+		if (getMinHFound() > minCost && pruned) {
+			pruned = false;
+			return true;
+		}
+		optimal();
+		return false;
 	}
 
 	@Override
 	protected void findPath(RuneMap initialMap) {
-		minHFound = Integer.MAX_VALUE;
-		MutableRuneMap map = initialMap.toMutable();
-		for (int limit = costOf(map); minHFound != 0 && !isStopped(); limit++)
+		best.set(Long.MAX_VALUE);
+		pruned = true;
+		bound = costFunc.bind(initialMap);
+		int minCost = bound.getMinimumCost(initialMap);
+		Canonicalizer.Form symmetry = canonicalizer.canonicalize(initialMap);
+		scheduler = new StartCellScheduler(initialMap);
+		TranspositionTable table = this.table;
+		if (!BitboardRuneMap.canHandle(initialMap.getWidth(), initialMap.getHeight())) {
+			MutableRuneMap map = initialMap.toMutable();
 			for (int x = 0; x < map.getWidth(); x++)
 				for (int y = 0; y < map.getHeight(); y++)
-					if (canStart(x, y, map))
-						findPath(map, limit, x, y, new ArrayList<>(), x, y, 0);
+					if (canStart(x, y, map) && !symmetry.isRedundantStart(x, y))
+						scheduler.add(x, y);
+			for (int limit = costOf(map); hasNextIteration(minCost); limit++) {
+				getStatistics().setLimit(limit);
+				int iteration = table == null ? 0 : table.newIteration();
+				for (int cell : scheduler.nextIteration()) {
+					int x = StartCellScheduler.x(cell), y = StartCellScheduler.y(cell);
+					new LargeSearcher(map, table, iteration, limit, x, y).search(x, y, 0);
+				}
+			}
+			return;
+		}
+		BitboardRuneMap map = new BitboardRuneMap(initialMap);
+		for (int x = 0; x < map.getWidth(); x++)
+			for (int y = 0; y < map.getHeight(); y++)
+				if (canStart(x, y, map) && !symmetry.isRedundantStart(x, y))
+					scheduler.add(x, y);
+		if (parallelism == 1) {
+			Searcher searcher = acquire(map);
+			try {
+				for (int limit = costOf(map); hasNextIteration(minCost); limit++) {
+					getStatistics().setLimit(limit);
+					int iteration = table == null ? 0 : table.newIteration();
+					for (int cell : scheduler.nextIteration()) {
+						int x = StartCellScheduler.x(cell), y = StartCellScheduler.y(cell);
+						searcher.init(map, table, iteration, limit, x, y).search(x, y, 0);
+					}
+				}
+			} finally {
+				release(searcher);
+			}
+			return;
+		}
+		ForkJoinPool pool = getPool();
+		for (int limit = costOf(map); hasNextIteration(minCost); limit++) {
+			getStatistics().setLimit(limit);
+			int iteration = table == null ? 0 : table.newIteration();
+			List<SearchTask> tasks = new ArrayList<>();
+			for (int cell : scheduler.nextIteration()) {
+				int x = StartCellScheduler.x(cell), y = StartCellScheduler.y(cell);
+				tasks.add(new SearchTask(acquire(map).init(map, table, iteration, limit, x, y), x, y, 0));
+			}
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		}
+	}
+
+	/*
+	 * The pool is kept between searches; its idle threads end by themselves.
+	 */
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null)
+			pool = new ForkJoinPool(parallelism);
+		return pool;
+	}
+
+	/*
+	 * A searcher for the map, reused if possible.
+	 */
+	private Searcher acquire(BitboardRuneMap map) {
+		Searcher searcher;
+		while ((searcher = searchers.poll()) != null)
+			if (searcher.fits(map))
+				return searcher;
+		return new Searcher(map);
+	}
+
+	private void release(Searcher searcher) {
+		searchers.offer(searcher);
 	}
 
-	// The Recursion!
-	private void findPath(MutableRuneMap map, int limit, int startX, int startY, List<Direction> directions, int x1,
-			int y1, int g) {
-		int h = costOf(map);
-		if (g + h > limit || isStopped())
+	/*
+	 * Report the result of the searcher if (h, g) is better than the best so
+	 * far. Locked so that results are reported in improving order.
+	 */
+	private void offer(AbstractSearcher searcher, int h, int g) {
+		long packed = (long) h << 32 | g;
+		if (packed >= best.get())
 			return;
-		if ((h < minHFound || (h == minHFound && g < minGUsed)) && !directions.isEmpty()) {
-			Path path = new Path(new Point(startX, startY), directions);
-			String descr = costFunc.describe(map, countCombo(map));
-			descr += " " + directions.size() + " Move";
+		synchronized (best) {
+			if (packed >= best.get())
+				return;
+			best.set(packed);
+			Path path = new Path(searcher.startX, searcher.startY, searcher.directions);
+			String descr = searcher.describe() + " " + searcher.directions.size() + " Move";
 			result(path, descr);
+		}
+	}
+
+	/*
+	 * The state of searching from one starting location, and the recursion
+	 * shared by the searchers of both kinds of maps.
+	 */
+	private abstract class AbstractSearcher {
+		final BoardGeometry geometry;
+		final boolean diagonal = allowsDiagonalMoves();
+		final SearchStatistics.Recorder recorder;
+		final DirectionStack directions = new DirectionStack();
+		TranspositionTable table;
+		int iteration, limit, startX, startY;
+		int lowest;
 
-			minHFound = h;
-			minGUsed = g;
+		AbstractSearcher(int width, int height) {
+			this.geometry = BoardGeometry.of(width, height);
+			this.recorder = getStatistics().newRecorder();
 		}
-		for (Direction d : Direction.values()) {
-			int x2 = x1 + d.getX(), y2 = y1 + d.getY();
-			if (!map.isInRange(x2, y2))
-				continue;
-			if (!canMove(startX, startY, directions, d, x2, y2, map))
-				continue;
 
-			map.swap(x1, y1, x2, y2);
-			directions.add(d);
+		void init(TranspositionTable table, int iteration, int limit, int startX, int startY) {
+			this.directions.clear();
+			this.table = table;
+			this.iteration = iteration;
+			this.limit = limit;
+			this.startX = startX;
+			this.startY = startY;
+			this.lowest = Integer.MAX_VALUE;
+		}
+
+		/*
+		 * The estimated cost of the current map.
+		 */
+		abstract int estimateCost();
+
+		abstract long getZobristHash();
+
+		abstract boolean canMove(Direction d, int x2, int y2);
+
+		abstract void swap(int x1, int y1, int x2, int y2);
 
-			int cost = costFunc.costOfMove(d);
-			findPath(map, limit, startX, startY, directions, x2, y2, g + cost);
+		/*
+		 * The description of the current map, without the moves.
+		 */
+		abstract String describe();
 
+		/*
+		 * Where to fork the moves from the current state into; null to search
+		 * them in this thread.
+		 */
+		Forker forker() {
+			return null;
+		}
+
+		final void search(int x, int y, int g) {
+			try {
+				findPath(x, y, g);
+			} finally {
+				recorder.flush();
+				scheduler.record(startX, startY, lowest);
+			}
+		}
+
+		// The Recursion!
+		private void findPath(int x1, int y1, int g) {
+			int h = estimateCost();
+			if (isStopped(recorder))
+				return;
+			if (h < lowest)
+				lowest = h;
+			if (g + h > limit) {
+				if (!pruned)
+					pruned = true;
+				recorder.costPrune();
+				return;
+			}
+			if (table != null && !directions.isEmpty()) {
+				Direction last = directions.peek();
+				long key = getZobristHash() ^ Zobrist.cursorKey(x1, y1, last);
+				if (table.isDominated(key, iteration, g)) {
+					recorder.transpositionPrune();
+					return;
+				}
+			}
+			recorder.node();
+			if (!directions.isEmpty())
+				offer(this, h, g);
+			Forker forker = forker();
+			List<SearchTask> forks = forker != null ? new ArrayList<>() : null;
+			for (int move : geometry.getMoves(x1, y1, diagonal)) {
+				Direction d = BoardGeometry.direction(move);
+				int x2 = BoardGeometry.x(move), y2 = BoardGeometry.y(move);
+				if (!canMove(d, x2, y2)) {
+					recorder.restrictionPrune();
+					continue;
+				}
+
+				swap(x1, y1, x2, y2);
+				directions.push(d);
+
+				int cost = bound.costOfMove(d);
+				if (forks != null)
+					forks.add(forker.fork(x2, y2, g + cost));
+				else
+					findPath(x2, y2, g + cost);
+
+				swap(x1, y1, x2, y2);
+				directions.pop();
+			}
+			if (forks != null)
+				ForkJoinTask.invokeAll(forks);
+		}
+	}
+
+	/*
+	 * Makes a task continuing the search from the current state of a searcher
+	 * after moving to (x, y) with cost g.
+	 */
+	@FunctionalInterface
+	private interface Forker {
+		SearchTask fork(int x, int y, int g);
+	}
+
+	/*
+	 * The searcher of maps BitboardRuneMap can handle, evaluating combo
+	 * incrementally; reused for other starting locations, iterations and
+	 * searches of maps of the same size.
+	 */
+	private final class Searcher extends AbstractSearcher {
+		private final BitboardRuneMap map;
+		private final boolean details;
+		private final IncrementalComboEvaluator evaluator;
+
+		private Searcher(BitboardRuneMap map) {
+			super(map.getWidth(), map.getHeight());
+			this.map = new BitboardRuneMap(map);
+			this.details = bound.requiresComboDetails();
+			this.evaluator = createComboEvaluator(this.map, new ComboBuffer(details));
+		}
+
+		/*
+		 * Whether it can search the map with the current cost function.
+		 */
+		private boolean fits(BitboardRuneMap map) {
+			return this.map.getWidth() == map.getWidth() && this.map.getHeight() == map.getHeight()
+					&& details == bound.requiresComboDetails();
+		}
+
+		private Searcher init(BitboardRuneMap map, TranspositionTable table, int iteration, int limit, int startX,
+				int startY) {
+			this.map.copyFrom(map);
+			this.evaluator.reset();
+			init(table, iteration, limit, startX, startY);
+			return this;
+		}
+
+		/*
+		 * Continue the search of that in this searcher.
+		 */
+		private Searcher init(Searcher that) {
+			init(that.map, that.table, that.iteration, that.limit, that.startX, that.startY);
+			for (int i = 0; i < that.directions.size(); i++)
+				directions.push(that.directions.get(i));
+			return this;
+		}
+
+		@Override
+		int estimateCost() {
+			return bound.estimateCost(map, recorder.countCombo(evaluator));
+		}
+
+		@Override
+		long getZobristHash() {
+			return map.getZobristHash();
+		}
+
+		@Override
+		boolean canMove(Direction d, int x2, int y2) {
+			return IDAStarPathFinder.this.canMove(startX, startY, directions, d, x2, y2, map);
+		}
+
+		@Override
+		void swap(int x1, int y1, int x2, int y2) {
+			evaluator.swap(x1, y1, x2, y2);
+		}
+
+		@Override
+		String describe() {
+			return bound.describe(map, countCombo(map));
+		}
+
+		@Override
+		Forker forker() {
+			if (parallelism == 1 || directions.size() >= splitDepth)
+				return null;
+			return (x, y, g) -> new SearchTask(acquire(map).init(this), x, y, g);
+		}
+	}
+
+	/*
+	 * The searcher of maps too large for BitboardRuneMap, counting combo of
+	 * the whole map on every node; used once, in the calling thread.
+	 */
+	private final class LargeSearcher extends AbstractSearcher {
+		private final MutableRuneMap map;
+
+		private LargeSearcher(MutableRuneMap map, TranspositionTable table, int iteration, int limit, int startX,
+				int startY) {
+			super(map.getWidth(), map.getHeight());
+			this.map = map;
+			init(table, iteration, limit, startX, startY);
+		}
+
+		@Override
+		int estimateCost() {
+			return costOf(map);
+		}
+
+		@Override
+		long getZobristHash() {
+			return map.getZobristHash();
+		}
+
+		@Override
+		boolean canMove(Direction d, int x2, int y2) {
+			return IDAStarPathFinder.this.canMove(startX, startY, directions, d, x2, y2, map);
+		}
+
+		@Override
+		void swap(int x1, int y1, int x2, int y2) {
 			map.swap(x1, y1, x2, y2);
-			directions.remove(directions.size() - 1);
+		}
+
+		@Override
+		String describe() {
+			return bound.describe(map, countCombo(map));
+		}
+	}
+
+	/*
+	 * Search from a Searcher with its own copy of map and directions, and
+	 * release it afterward.
+	 */
+	private final class SearchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final transient Searcher searcher;
+		private final int x, y, g;
+
+		private SearchTask(Searcher searcher, int x, int y, int g) {
+			this.searcher = searcher;
+			this.x = x;
+			this.y = y;
+			this.g = g;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				searcher.search(x, y, g);
+			} finally {
+				release(searcher);
+			}
 		}
 	}
 }
@@ -0,0 +1,145 @@
+package tosram.algorithm.idastar;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import tosram.RuneMap;
+import tosram.RuneStone;
+
+/**
+ * Decides the order of starting locations in each iteration of
+ * {@link IDAStarPathFinder}, so that the locations most likely to improve the
+ * result are searched first, and improvements are reported sooner. The order
+ * does not change what an iteration searches, only when.
+ * <p>
+ * The first iteration is ordered by a static score: the fewer stones of its
+ * kind the map has, the sooner a location is searched, as a stone that can
+ * make few combo is the one worth carrying away. Later iterations are ordered
+ * by the lowest estimated cost reached from each location in the previous
+ * iteration, then by the static score.
+ * <p>
+ * Locations are encoded as <code>x &lt;&lt; 16 | y</code>. Recording is safe
+ * from multiple threads; everything else is called from the thread running
+ * the search.
+ *
+ * @author johnchen902
+ */
+final class StartCellScheduler {
+
+	private static final int KINDS = RuneStone.values().length;
+	private static final int UNRECORDED = Integer.MAX_VALUE;
+
+	private final int width, height;
+	private final int[] scores;
+	private final AtomicIntegerArray lowest;
+	private final int[] cells;
+	private int size;
+	private boolean started;
+
+	/**
+	 * Create a scheduler of no location for the map.
+	 *
+	 * @param map
+	 *            the initial map
+	 */
+	StartCellScheduler(RuneMap map) {
+		this.width = map.getWidth();
+		this.height = map.getHeight();
+		this.scores = score(map);
+		this.lowest = new AtomicIntegerArray(width * height);
+		this.cells = new int[width * height];
+		for (int i = 0; i < width * height; i++)
+			lowest.set(i, UNRECORDED);
+	}
+
+	/*
+	 * The static score of every location, indexed by y * width + x; the
+	 * higher, the sooner.
+	 */
+	private static int[] score(RuneMap map) {
+		int width = map.getWidth(), height = map.getHeight();
+		int[] stones = new int[width * height];
+		int[] count = new int[KINDS];
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				count[stones[y * width + x] = map.getRuneStone(x, y).ordinal()]++;
+		int[] scores = new int[width * height];
+		for (int i = 0; i < scores.length; i++)
+			scores[i] = width * height - count[stones[i]];
+		return scores;
+	}
+
+	/**
+	 * Add a location to search from in every iteration.
+	 *
+	 * @param x
+	 *            the X coordinate of the location
+	 * @param y
+	 *            the Y coordinate of the location
+	 */
+	void add(int x, int y) {
+		cells[size++] = x << 16 | y;
+	}
+
+	/**
+	 * Record that an estimated cost was reached from a location in the
+	 * current iteration.
+	 *
+	 * @param x
+	 *            the X coordinate of the location
+	 * @param y
+	 *            the Y coordinate of the location
+	 * @param h
+	 *            the lowest estimated cost reached
+	 */
+	void record(int x, int y, int h) {
+		lowest.accumulateAndGet(y * width + x, h, Math::min);
+	}
+
+	/**
+	 * Returns the locations in the order to search in the next iteration,
+	 * and forget what was recorded.
+	 *
+	 * @return the encoded locations
+	 */
+	int[] nextIteration() {
+		int[] indices = new int[size], costs = new int[size];
+		Integer[] sorted = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			indices[i] = y(cells[i]) * width + x(cells[i]);
+			costs[i] = started ? lowest.getAndSet(indices[i], UNRECORDED) : 0;
+			sorted[i] = i;
+		}
+		started = true;
+		// lower cost, then higher score, then (stable sort) the order added
+		Arrays.sort(sorted, Comparator.<Integer> comparingInt(i -> costs[i])
+				.thenComparingInt(i -> -scores[indices[i]]));
+		int[] order = new int[size];
+		for (int i = 0; i < order.length; i++)
+			order[i] = cells[sorted[i]];
+		return order;
+	}
+
+	/**
+	 * Returns the X coordinate of an encoded location.
+	 *
+	 * @param cell
+	 *            the encoded location
+	 * @return the X coordinate
+	 */
+	static int x(int cell) {
+		return cell >>> 16;
+	}
+
+	/**
+	 * Returns the Y coordinate of an encoded location.
+	 *
+	 * @param cell
+	 *            the encoded location
+	 * @return the Y coordinate
+	 */
+	static int y(int cell) {
+		return cell & 0xFFFF;
+	}
+}
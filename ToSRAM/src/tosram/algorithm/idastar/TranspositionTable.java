@@ -0,0 +1,162 @@
+package tosram.algorithm.idastar;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, lock-free transposition table for {@link IDAStarPathFinder}. It
+ * remembers the least cost <code>g</code> a state of searching (usually a
+ * {@link tosram.Zobrist Zobrist} hash of the map and the cursor) has been
+ * reached with in the current iteration, so that revisiting the state with no
+ * less cost can be pruned.
+ * <p>
+ * Entries are stored in buckets of two. When a bucket is full, an entry of an
+ * earlier iteration is replaced first, and then the entry with the greater
+ * cost, as it covers a smaller part of the search. Each entry is stored as
+ * <code>key ^ value</code> beside the value, so an entry torn by concurrent
+ * writes is simply not found.
+ * <p>
+ * The table must not be shared by searches running concurrently, as each of
+ * them starts new iterations.
+ *
+ * @author johnchen902
+ */
+public final class TranspositionTable {
+
+	private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+	private final long[] keys, values;
+	private final int mask;
+	private volatile int iteration;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder replacements = new LongAdder();
+
+	/**
+	 * Create a transposition table using at most the specified number of bytes
+	 * for entries.
+	 *
+	 * @param budget
+	 *            the memory budget in bytes
+	 * @throws IllegalArgumentException
+	 *             if <code>budget</code> is less than two entries
+	 */
+	public TranspositionTable(long budget) {
+		if (budget < 2 * ENTRY_BYTES)
+			throw new IllegalArgumentException("budget < " + 2 * ENTRY_BYTES);
+		long entries = Long.highestOneBit(Math.min(budget / ENTRY_BYTES,
+				1 << 30));
+		keys = new long[(int) entries];
+		values = new long[(int) entries];
+		mask = (int) entries - 1;
+	}
+
+	/**
+	 * Returns the number of entries this table can hold.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Start a new iteration, in which entries of previous iterations are
+	 * ignored.
+	 *
+	 * @return the new iteration
+	 */
+	public int newIteration() {
+		return ++iteration;
+	}
+
+	/**
+	 * Determines whether the specified state has been reached with no more cost
+	 * in the specified iteration. If not, the state is recorded with the cost.
+	 *
+	 * @param key
+	 *            the key of the state
+	 * @param iteration
+	 *            the iteration returned by {@link #newIteration()}
+	 * @param g
+	 *            the non-negative cost with which the state is reached
+	 * @return <code>true</code> if the state can be pruned;
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isDominated(long key, int iteration, int g) {
+		long value = (long) iteration << 32 | g;
+		int first = (int) key & mask & ~1;
+		int victim = -1;
+		for (int i = first; i <= first + 1; i++) {
+			long v = values[i];
+			if ((keys[i] ^ v) == key) {
+				if ((int) (v >>> 32) == iteration && (int) v <= g) {
+					hits.increment();
+					return true;
+				}
+				victim = i;
+				break;
+			}
+		}
+		misses.increment();
+		if (victim < 0) {
+			victim = chooseVictim(first, iteration);
+			if (values[victim] != 0)
+				replacements.increment();
+		}
+		values[victim] = value;
+		keys[victim] = key ^ value;
+		return false;
+	}
+
+	private int chooseVictim(int first, int iteration) {
+		long v0 = values[first], v1 = values[first + 1];
+		boolean stale0 = (int) (v0 >>> 32) != iteration;
+		boolean stale1 = (int) (v1 >>> 32) != iteration;
+		if (stale0 != stale1)
+			return stale0 ? first : first + 1;
+		return (int) v0 >= (int) v1 ? first : first + 1;
+	}
+
+	/**
+	 * Returns the number of lookups which found the state could be pruned.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups which found the state could not be pruned.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of entries of other states overwritten.
+	 *
+	 * @return the number of replacements
+	 */
+	public long getReplacements() {
+		return replacements.sum();
+	}
+
+	/**
+	 * Reset the counters of hits, misses and replacements.
+	 */
+	public void resetCounters() {
+		hits.reset();
+		misses.reset();
+		replacements.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"TranspositionTable[capacity=%d, hits=%d, misses=%d, replacements=%d]",
+				getCapacity(), getHits(), getMisses(), getReplacements());
+	}
+}
@@ -4,19 +4,34 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import tosram.BitboardRuneMap;
 import tosram.Direction;
 import tosram.MutableRuneMap;
+import tosram.algorithm.DirectionRestriction;
 import tosram.algorithm.PathRestriction;
 
 /**
  * This class take some restriction and allows a move if and only if all
  * provided restrictions allow it.
+ * <p>
+ * Every {@link DirectionRestriction} is compiled into a table indexed by the
+ * last direction, holding the bitmask of directions allowed next, so that they
+ * are checked with a single array load. Only other restrictions are called on
+ * every move.
  * 
  * @author johnchen902
  */
 public class CompositeRestriction implements PathRestriction {
 
-	private List<PathRestriction> restrictions;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	/*
+	 * The index of the table when not moved yet.
+	 */
+	private static final int START = DIRECTIONS.length;
+
+	private final int[] allowed;
+	private final PathRestriction[] restrictions;
+	private final boolean mirrorSymmetric, colorAgnostic, diagonal;
 
 	/**
 	 * Returns a restriction that allows a move if and only if all restrictions
@@ -37,7 +52,58 @@ public class CompositeRestriction implements PathRestriction {
 	}
 
 	private CompositeRestriction(List<PathRestriction> restrictions) {
-		this.restrictions = new ArrayList<>(restrictions);
+		List<DirectionRestriction> compiled = new ArrayList<>();
+		List<PathRestriction> dynamic = new ArrayList<>();
+		for (PathRestriction restriction : restrictions) {
+			if (restriction instanceof DirectionRestriction)
+				compiled.add((DirectionRestriction) restriction);
+			else
+				dynamic.add(Objects.requireNonNull(restriction));
+		}
+		this.allowed = compile(compiled);
+		this.restrictions = dynamic.toArray(new PathRestriction[0]);
+		this.mirrorSymmetric = restrictions.stream().allMatch(
+				PathRestriction::isMirrorSymmetric);
+		this.colorAgnostic = restrictions.stream().allMatch(
+				PathRestriction::isColorAgnostic);
+		this.diagonal = allowsDiagonalMoves(allowed)
+				&& dynamic.stream().allMatch(
+						PathRestriction::allowsDiagonalMoves);
+	}
+
+	/*
+	 * Whether the table allows any diagonal move.
+	 */
+	private static boolean allowsDiagonalMoves(int[] allowed) {
+		int diagonals = 0;
+		for (Direction direction : DIRECTIONS)
+			if (direction.isDiagonal())
+				diagonals |= 1 << direction.ordinal();
+		for (int mask : allowed)
+			if ((mask & diagonals) != 0)
+				return true;
+		return false;
+	}
+
+	private static int[] compile(List<DirectionRestriction> restrictions) {
+		int[] allowed = new int[START + 1];
+		for (int last = 0; last <= START; last++) {
+			Direction lastDirection = last == START ? null : DIRECTIONS[last];
+			for (Direction direction : DIRECTIONS) {
+				boolean can = true;
+				for (DirectionRestriction restriction : restrictions)
+					can &= restriction.canMove(lastDirection, direction);
+				if (can)
+					allowed[last] |= 1 << direction.ordinal();
+			}
+		}
+		return allowed;
+	}
+
+	private boolean isAllowed(List<Direction> dirs, Direction dir) {
+		int last = dirs.isEmpty() ? START : dirs.get(dirs.size() - 1)
+				.ordinal();
+		return (allowed[last] >>> dir.ordinal() & 1) != 0;
 	}
 
 	@Override
@@ -51,9 +117,55 @@ public class CompositeRestriction implements PathRestriction {
 	@Override
 	public boolean canMove(int stX, int stY, List<Direction> dirs,
 			Direction dir, int rsX, int rsY, MutableRuneMap map) {
+		if (!isAllowed(dirs, dir))
+			return false;
 		for (PathRestriction restriction : restrictions)
 			if (!restriction.canMove(stX, stY, dirs, dir, rsX, rsY, map))
 				return false;
 		return true;
 	}
+
+	@Override
+	public boolean canStart(int stX, int stY, BitboardRuneMap map) {
+		for (PathRestriction restriction : restrictions)
+			if (!restriction.canStart(stX, stY, map))
+				return false;
+		return true;
+	}
+
+	@Override
+	public boolean canMove(int stX, int stY, List<Direction> dirs,
+			Direction dir, int rsX, int rsY, BitboardRuneMap map) {
+		if (!isAllowed(dirs, dir))
+			return false;
+		for (PathRestriction restriction : restrictions)
+			if (!restriction.canMove(stX, stY, dirs, dir, rsX, rsY, map))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if the compiled table allows some diagonal
+	 * move and all other restrictions may allow diagonal moves.
+	 */
+	@Override
+	public boolean allowsDiagonalMoves() {
+		return diagonal;
+	}
+
+	/**
+	 * Returns <code>true</code> if all restrictions are mirror symmetric.
+	 */
+	@Override
+	public boolean isMirrorSymmetric() {
+		return mirrorSymmetric;
+	}
+
+	/**
+	 * Returns <code>true</code> if all restrictions are color agnostic.
+	 */
+	@Override
+	public boolean isColorAgnostic() {
+		return colorAgnostic;
+	}
 }
@@ -1,27 +1,25 @@
 package tosram.algorithm.path;
 
-import java.util.List;
-
 import tosram.Direction;
-import tosram.MutableRuneMap;
-import tosram.algorithm.PathRestriction;
+import tosram.algorithm.DirectionRestriction;
 
 /**
  * Restriction which disallows diagonal moves.
  * 
  * @author johnchen902
  */
-public class DiagonalMoveRestriction implements PathRestriction {
+public class DiagonalMoveRestriction implements DirectionRestriction {
 
 	@Override
-	public boolean canStart(int startingX, int startingY, MutableRuneMap map) {
-		return true;
+	public boolean canMove(Direction last, Direction direction) {
+		return !direction.isDiagonal();
 	}
 
+	/**
+	 * Returns <code>false</code>.
+	 */
 	@Override
-	public boolean canMove(int startingX, int startingY,
-			List<Direction> directions, Direction direction, int resultingX,
-			int resultingY, MutableRuneMap map) {
-		return !direction.isDiagonal();
+	public boolean allowsDiagonalMoves() {
+		return false;
 	}
 }
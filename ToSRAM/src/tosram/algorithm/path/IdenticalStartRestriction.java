@@ -2,6 +2,7 @@ package tosram.algorithm.path;
 
 import java.util.List;
 
+import tosram.BitboardRuneMap;
 import tosram.Direction;
 import tosram.MutableRuneMap;
 import tosram.RuneStone;
@@ -35,4 +36,39 @@ public class IdenticalStartRestriction implements PathRestriction {
 		RuneStone stone2 = map.getRuneStone(middleX, middleY);
 		return stone1 != stone2;
 	}
+
+	@Override
+	public boolean canStart(int startingX, int startingY, BitboardRuneMap map) {
+		return true;
+	}
+
+	@Override
+	public boolean canMove(int startingX, int startingY,
+			List<Direction> directions, Direction direction, int resultingX,
+			int resultingY, BitboardRuneMap map) {
+		if (directions.size() != 1)
+			return true;
+		int middleX = startingX + directions.get(0).getX();
+		int middleY = startingY + directions.get(0).getY();
+		RuneStone stone1 = map.getRuneStone(startingX, startingY);
+		RuneStone stone2 = map.getRuneStone(middleX, middleY);
+		return stone1 != stone2;
+	}
+
+	/**
+	 * Returns <code>true</code>, as mirroring keeps the stones moved adjacent.
+	 */
+	@Override
+	public boolean isMirrorSymmetric() {
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code>, as permuting colors keeps identical stones
+	 * identical.
+	 */
+	@Override
+	public boolean isColorAgnostic() {
+		return true;
+	}
 }
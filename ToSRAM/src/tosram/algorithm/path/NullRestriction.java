@@ -2,6 +2,7 @@ package tosram.algorithm.path;
 
 import java.util.List;
 
+import tosram.BitboardRuneMap;
 import tosram.Direction;
 import tosram.MutableRuneMap;
 import tosram.algorithm.PathRestriction;
@@ -24,4 +25,32 @@ public class NullRestriction implements PathRestriction {
 			int resultingY, MutableRuneMap map) {
 		return true;
 	}
+
+	@Override
+	public boolean canStart(int startingX, int startingY, BitboardRuneMap map) {
+		return true;
+	}
+
+	@Override
+	public boolean canMove(int startingX, int startingY,
+			List<Direction> directions, Direction direction, int resultingX,
+			int resultingY, BitboardRuneMap map) {
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code>.
+	 */
+	@Override
+	public boolean isMirrorSymmetric() {
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code>.
+	 */
+	@Override
+	public boolean isColorAgnostic() {
+		return true;
+	}
 }
@@ -1,10 +1,7 @@
 package tosram.algorithm.path;
 
-import java.util.List;
-
 import tosram.Direction;
-import tosram.MutableRuneMap;
-import tosram.algorithm.PathRestriction;
+import tosram.algorithm.DirectionRestriction;
 
 /**
  * Restriction which disallows U-turns i.e. consecutive opposite moves, which
@@ -12,17 +9,9 @@ import tosram.algorithm.PathRestriction;
  * 
  * @author johnchen902
  */
-public class UTurnRestriction implements PathRestriction {
-	@Override
-	public boolean canStart(int startingX, int startingY, MutableRuneMap map) {
-		return true;
-	}
-
+public class UTurnRestriction implements DirectionRestriction {
 	@Override
-	public boolean canMove(int startingX, int startingY,
-			List<Direction> directions, Direction direction, int resultingX,
-			int resultingY, MutableRuneMap map) {
-		return directions.isEmpty()
-				|| directions.get(directions.size() - 1).getOppsite() != direction;
+	public boolean canMove(Direction last, Direction direction) {
+		return last == null || last.getOppsite() != direction;
 	}
 }
@@ -0,0 +1,313 @@
+package tosram.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import tosram.Path;
+import tosram.RuneMap;
+import tosram.algorithm.Canonicalizer;
+import tosram.algorithm.ComboCounter;
+import tosram.algorithm.LongComboCounter;
+import tosram.algorithm.PathFinder;
+import tosram.algorithm.PathRestriction;
+import tosram.algorithm.SearchResult;
+import tosram.algorithm.cache.CachingPathFinder;
+import tosram.algorithm.cache.SolutionStore;
+import tosram.algorithm.idastar.ComboCostFunction;
+import tosram.algorithm.idastar.CostFunction;
+import tosram.algorithm.idastar.IDAStarPathFinder;
+import tosram.algorithm.path.CompositeRestriction;
+import tosram.algorithm.path.DiagonalMoveRestriction;
+import tosram.algorithm.path.IdenticalStartRestriction;
+import tosram.algorithm.path.UTurnRestriction;
+
+/**
+ * Solve many boards without the GUI. Boards are read one per line in the
+ * format of {@link RuneMap#toString()}, solved concurrently, each within a
+ * time budget, and the results are printed as soon as they are finished, not
+ * necessarily in the order of input. Each result is a line of tab-separated
+ * fields: the line number of the board, prefixed with the file name and a
+ * colon if read from a file, the number of combo, the number of moves and the
+ * path. A board which cannot be parsed is reported to the standard error.
+ * 
+ * <pre>
+ * Usage: BatchSolver [-t threads] [-b budget-ms] [-s store] [file...]
+ * </pre>
+ * 
+ * Boards are read from the standard input if no file is specified. With a
+ * {@link SolutionStore}, boards solved before start from the stored solution,
+ * and better solutions found are stored.
+ * 
+ * @author johnchen902
+ */
+public class BatchSolver implements AutoCloseable {
+
+	private final int threads;
+	private final long budget;
+	/*
+	 * Identifies the restriction and the cost function of createPathFinder in
+	 * the solution store; change it whenever they change.
+	 */
+	private static final String CONFIGURATION = "IDA*;UTurn,IdenticalStart,Diagonal;Combo*3";
+
+	private final PrintStream out, err;
+	private final SolutionStore store;
+	private final ComboCounter counter = new LongComboCounter();
+	private final ThreadLocal<PathFinder> finders = ThreadLocal
+			.withInitial(this::createPathFinder);
+	/*
+	 * Kept for every input, so that the finders of its threads are reused.
+	 */
+	private final ExecutorService pool;
+	/*
+	 * Bounds the number of boards read but not yet solved.
+	 */
+	private final Semaphore pending;
+
+	/**
+	 * Create a solver.
+	 * 
+	 * @param threads
+	 *            the number of boards solved concurrently
+	 * @param budget
+	 *            the time budget of each board in milliseconds
+	 * @param out
+	 *            where results are printed to
+	 * @param err
+	 *            where errors are printed to
+	 * @throws IllegalArgumentException
+	 *             if <code>threads</code> or <code>budget</code> is not
+	 *             positive
+	 */
+	public BatchSolver(int threads, long budget, PrintStream out,
+			PrintStream err) {
+		this(threads, budget, out, err, null);
+	}
+
+	/**
+	 * Create a solver with a solution store.
+	 * 
+	 * @param threads
+	 *            the number of boards solved concurrently
+	 * @param budget
+	 *            the time budget of each board in milliseconds
+	 * @param out
+	 *            where results are printed to
+	 * @param err
+	 *            where errors are printed to
+	 * @param store
+	 *            the store of solutions; <code>null</code> to not use one
+	 * @throws IllegalArgumentException
+	 *             if <code>threads</code> or <code>budget</code> is not
+	 *             positive
+	 */
+	public BatchSolver(int threads, long budget, PrintStream out,
+			PrintStream err, SolutionStore store) {
+		if (threads <= 0)
+			throw new IllegalArgumentException("threads <= 0");
+		if (budget <= 0)
+			throw new IllegalArgumentException("budget <= 0");
+		this.threads = threads;
+		this.budget = budget;
+		this.out = Objects.requireNonNull(out);
+		this.err = Objects.requireNonNull(err);
+		this.store = store;
+		this.pool = Executors.newFixedThreadPool(threads);
+		this.pending = new Semaphore(threads * 2);
+	}
+
+	/**
+	 * Solve every board read from the specified reader, and wait for all of
+	 * them to finish. Results are identified by line numbers alone.
+	 * 
+	 * @param in
+	 *            the reader to read boards from
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @see #solve(String, BufferedReader)
+	 */
+	public void solve(BufferedReader in) throws IOException,
+			InterruptedException {
+		solve(null, in);
+	}
+
+	/**
+	 * Solve every board read from the specified reader, and wait for all of
+	 * them to finish. Inputs are solved one at a time by the same threads.
+	 * 
+	 * @param name
+	 *            the name of the input prefixed to line numbers, such as the
+	 *            file name; <code>null</code> for no prefix
+	 * @param in
+	 *            the reader to read boards from
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public void solve(String name, BufferedReader in) throws IOException,
+			InterruptedException {
+		String prefix = name == null ? "" : name + ":";
+		try {
+			String line;
+			for (int lineNumber = 1; (line = in.readLine()) != null; lineNumber++) {
+				if (line.trim().isEmpty())
+					continue;
+				RuneMap map;
+				try {
+					map = RuneMap.parse(line);
+				} catch (IllegalArgumentException e) {
+					synchronized (err) {
+						err.println(prefix + lineNumber + ": " + e.getMessage());
+					}
+					continue;
+				}
+				String number = prefix + lineNumber;
+				pending.acquire();
+				pool.execute(() -> {
+					try {
+						solve(number, map);
+					} catch (RuntimeException e) {
+						// one failed board must not stop the others
+						synchronized (err) {
+							err.println(number + ": " + e);
+						}
+					} finally {
+						pending.release();
+					}
+				});
+			}
+		} finally {
+			// every permit is back once every board is solved
+			pending.acquire(threads * 2);
+			pending.release(threads * 2);
+		}
+	}
+
+	/**
+	 * Stop the threads after the boards being solved are finished. If
+	 * interrupted while waiting, it returns with the interrupt status set.
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void solve(String number, RuneMap map) {
+		SearchResult searchResult = finders.get().findPath(map,
+				Duration.ofMillis(budget));
+		String result;
+		if (!searchResult.isFound()) {
+			result = number + "\t0\t0\t-";
+		} else {
+			Path path = searchResult.getPath();
+			int combo = counter.countCombo(Path.follow(map, path).toMutable())
+					.size();
+			result = number + "\t" + combo + "\t"
+					+ path.getDirections().size() + "\t" + path;
+		}
+		synchronized (out) {
+			out.println(result);
+			out.flush();
+		}
+	}
+
+	/*
+	 * The same as the GUI, except that each board is searched by a single
+	 * thread as boards are already solved concurrently. Each thread reuses
+	 * its own finder, whose cost function is bound to each board.
+	 */
+	private PathFinder createPathFinder() {
+		List<PathRestriction> list = new ArrayList<>();
+		list.add(new UTurnRestriction());
+		list.add(new IdenticalStartRestriction());
+		list.add(new DiagonalMoveRestriction());
+		PathRestriction restriction = CompositeRestriction.composite(list);
+		CostFunction costFunction = new ComboCostFunction(3);
+		PathFinder finder = new IDAStarPathFinder(counter, restriction,
+				costFunction);
+		if (store == null)
+			return finder;
+		// mirrored and recolored boards share solutions
+		return new CachingPathFinder(finder, store, CONFIGURATION, counter,
+				Canonicalizer.of(restriction, costFunction));
+	}
+
+	/**
+	 * Run the batch solver with command line arguments.
+	 * 
+	 * @param args
+	 *            <code>[-t threads] [-b budget-ms] [-s store] [file...]</code>
+	 */
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		long budget = 1000;
+		String storeFile = null;
+		List<String> files = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-t":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "-b":
+					budget = Long.parseLong(args[++i]);
+					break;
+				case "-s":
+					storeFile = args[++i];
+					break;
+				default:
+					files.add(args[i]);
+				}
+			}
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			System.err.println("Usage: BatchSolver [-t threads] [-b budget-ms] [-s store] [file...]");
+			System.exit(2);
+			return;
+		}
+
+		SolutionStore store = storeFile == null ? null : new SolutionStore(
+				new File(storeFile));
+		try (BatchSolver solver = new BatchSolver(threads, budget, System.out,
+				System.err, store)) {
+			if (files.isEmpty()) {
+				solver.solve(reader(System.in));
+			} else {
+				for (String file : files)
+					try (BufferedReader in = reader(new FileInputStream(file))) {
+						solver.solve(file, in);
+					}
+			}
+		} finally {
+			if (store != null)
+				store.close();
+		}
+	}
+
+	private static BufferedReader reader(InputStream in) {
+		return new BufferedReader(new InputStreamReader(in,
+				StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,129 @@
+package tosram.server;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A client of {@link SolverServer} for testing. Boards are read one per line,
+ * all sent at once with their line numbers as ids, and every response is
+ * printed until all of them are done; then the statistics of the server are
+ * printed.
+ * 
+ * <pre>
+ * Usage: SolverClient -p port [-b budget-ms] [file...]
+ * </pre>
+ * 
+ * Boards are read from the standard input if no file is specified.
+ * 
+ * @author johnchen902
+ */
+public class SolverClient {
+
+	private SolverClient() {
+	}
+
+	/**
+	 * Send boards to a server and print the responses.
+	 * 
+	 * @param port
+	 *            the port of the server on the loopback address
+	 * @param budget
+	 *            the time budget of each board in milliseconds
+	 * @param boards
+	 *            the boards in the format of {@link tosram.RuneMap#toString()}
+	 * @param out
+	 *            where responses are printed to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static void run(int port, long budget, List<String> boards,
+			PrintStream out) throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+				BufferedReader in = new BufferedReader(new InputStreamReader(
+						socket.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+						socket.getOutputStream(), StandardCharsets.UTF_8))) {
+			for (int i = 0; i < boards.size(); i++)
+				writer.print("SOLVE\t" + (i + 1) + "\t" + budget + "\t"
+						+ boards.get(i) + "\n");
+			writer.flush();
+			int pending = boards.size();
+			String line;
+			while (pending > 0 && (line = in.readLine()) != null) {
+				out.println(line);
+				if (line.startsWith("DONE\t") || line.startsWith("BUSY\t")
+						|| line.startsWith("ERROR\t"))
+					pending--;
+			}
+			writer.print("STATS\n");
+			writer.flush();
+			out.println(in.readLine());
+			writer.print("QUIT\n");
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Run the client with command line arguments.
+	 * 
+	 * @param args
+	 *            <code>-p port [-b budget-ms] [file...]</code>
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = -1;
+		long budget = 1000;
+		List<String> files = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-p":
+					port = Integer.parseInt(args[++i]);
+					break;
+				case "-b":
+					budget = Long.parseLong(args[++i]);
+					break;
+				default:
+					files.add(args[i]);
+				}
+			}
+			if (port < 0)
+				throw new IllegalArgumentException("No port");
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println("Usage: SolverClient -p port [-b budget-ms] [file...]");
+			System.exit(2);
+			return;
+		}
+
+		List<String> boards = new ArrayList<>();
+		if (files.isEmpty()) {
+			read(System.in, boards);
+		} else {
+			for (String file : files)
+				try (InputStream in = new FileInputStream(file)) {
+					read(in, boards);
+				}
+		}
+		run(port, budget, boards, System.out);
+	}
+
+	private static void read(InputStream in, List<String> boards)
+			throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+				StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null)
+			if (!line.trim().isEmpty())
+				boards.add(line.trim());
+	}
+}
@@ -0,0 +1,597 @@
+package tosram.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import tosram.Path;
+import tosram.RuneMap;
+import tosram.algorithm.CancellationToken;
+import tosram.algorithm.ComboCounter;
+import tosram.algorithm.Improvement;
+import tosram.algorithm.LongComboCounter;
+import tosram.algorithm.PathFinder;
+import tosram.algorithm.PathRestriction;
+import tosram.algorithm.ResultPublisher;
+import tosram.algorithm.SearchResult;
+import tosram.algorithm.idastar.ComboCostFunction;
+import tosram.algorithm.idastar.IDAStarPathFinder;
+import tosram.algorithm.path.CompositeRestriction;
+import tosram.algorithm.path.DiagonalMoveRestriction;
+import tosram.algorithm.path.IdenticalStartRestriction;
+import tosram.algorithm.path.UTurnRestriction;
+
+/**
+ * A solver serving a line protocol on a loopback socket. Boards received are
+ * queued and solved by a fixed number of worker threads, each reusing its own
+ * {@link PathFinder} for every board, so that no finder is ever shared and its
+ * search state is allocated only once; improving results are streamed back as
+ * they are found.
+ * <p>
+ * Requests and responses are lines of tab-separated fields, in UTF-8. The
+ * requests are:
+ * <dl>
+ * <dt><code>SOLVE id budget-ms board</code></dt>
+ * <dd>Queue a board in the format of {@link RuneMap#toString()}. The deadline
+ * is <code>budget-ms</code> after the request is received, including the time
+ * waiting in the queue. The <code>id</code> is chosen by the client and
+ * identifies the board in responses. The response is
+ * <code>QUEUED id depth</code>, or <code>BUSY id</code> if the queue is full.
+ * When solving, <code>RESULT id combo moves path</code> is sent for results
+ * better than the last, except those superseded while the client is slow to
+ * read, and finally
+ * <code>DONE id status latency-ms</code>, where <code>status</code> is one of
+ * <code>optimal</code>, <code>complete</code>, <code>timeout</code>,
+ * <code>cancelled</code> or <code>expired</code>, the last of which means the
+ * deadline passed while in the queue.</dd>
+ * <dt><code>CANCEL id</code></dt>
+ * <dd>Stop solving the board, or skip it if still queued.</dd>
+ * <dt><code>STATS</code></dt>
+ * <dd>Responded with
+ * <code>STATS queued running completed p50 p90 p99 max</code>, the last four of
+ * which are percentiles of the latency of recent boards in milliseconds.</dd>
+ * <dt><code>QUIT</code></dt>
+ * <dd>Close the connection. Boards not finished are cancelled.</dd>
+ * </dl>
+ * A malformed request is responded with <code>ERROR message</code>.
+ *
+ * <pre>
+ * Usage: SolverServer [-p port] [-w workers] [-q queue-capacity]
+ * </pre>
+ *
+ * @see SolverClient
+ * @author johnchen902
+ */
+public class SolverServer implements Closeable {
+
+	private static final int LATENCY_SAMPLES = 1024;
+
+	private final int port, workers;
+	private final Supplier<PathFinder> factory;
+	private final BlockingQueue<Job> queue;
+	private final ComboCounter counter = new LongComboCounter();
+	private final List<Thread> threads = new ArrayList<>();
+	private final ExecutorService senders = Executors.newCachedThreadPool(r -> {
+		Thread thread = new Thread(r, "SolverServer-sender");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicLong completed = new AtomicLong();
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+	private ServerSocket serverSocket;
+	private volatile boolean closed;
+
+	/**
+	 * Create a server solving with the same restriction and cost function as
+	 * the GUI.
+	 *
+	 * @param port
+	 *            the port to listen on; <code>0</code> for any free port
+	 * @param workers
+	 *            the number of boards solved concurrently
+	 * @param queueCapacity
+	 *            the number of boards allowed to wait
+	 * @throws IllegalArgumentException
+	 *             if <code>workers</code> or <code>queueCapacity</code> is not
+	 *             positive
+	 */
+	public SolverServer(int port, int workers, int queueCapacity) {
+		this(port, workers, queueCapacity, SolverServer::createPathFinder);
+	}
+
+	/**
+	 * Create a server with a factory of <code>PathFinder</code>.
+	 *
+	 * @param port
+	 *            the port to listen on; <code>0</code> for any free port
+	 * @param workers
+	 *            the number of boards solved concurrently
+	 * @param queueCapacity
+	 *            the number of boards allowed to wait
+	 * @param factory
+	 *            creates the <code>PathFinder</code> of a worker; called once
+	 *            from each worker thread
+	 * @throws IllegalArgumentException
+	 *             if <code>workers</code> or <code>queueCapacity</code> is not
+	 *             positive
+	 */
+	public SolverServer(int port, int workers, int queueCapacity,
+			Supplier<PathFinder> factory) {
+		if (workers <= 0)
+			throw new IllegalArgumentException("workers <= 0");
+		if (queueCapacity <= 0)
+			throw new IllegalArgumentException("queueCapacity <= 0");
+		this.port = port;
+		this.workers = workers;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.factory = Objects.requireNonNull(factory);
+	}
+
+	/**
+	 * Start listening and solving.
+	 *
+	 * @throws IOException
+	 *             if the socket cannot be bound
+	 * @throws IllegalStateException
+	 *             if already started
+	 */
+	public synchronized void start() throws IOException {
+		if (serverSocket != null)
+			throw new IllegalStateException("Already started");
+		serverSocket = new ServerSocket(port, 50,
+				InetAddress.getLoopbackAddress());
+		for (int i = 0; i < workers; i++)
+			startThread(this::work, "SolverServer-worker-" + i);
+		startThread(this::accept, "SolverServer-acceptor");
+	}
+
+	/**
+	 * Returns the port listened on.
+	 *
+	 * @return the port
+	 * @throws IllegalStateException
+	 *             if not started
+	 */
+	public synchronized int getPort() {
+		if (serverSocket == null)
+			throw new IllegalStateException("Not started");
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stop listening, cancel every board and wait for the workers to finish.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		synchronized (this) {
+			if (serverSocket != null)
+				serverSocket.close();
+		}
+		for (Connection connection : connections) {
+			for (Job job : connection.jobs.values())
+				job.cancel();
+			connection.close();
+		}
+		for (Thread thread : threads)
+			thread.interrupt();
+		senders.shutdown();
+		for (Thread thread : threads)
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+	}
+
+	private void startThread(Runnable runnable, String name) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		threads.add(thread);
+		thread.start();
+	}
+
+	private void accept() {
+		while (!closed) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				if (!closed)
+					e.printStackTrace();
+				return;
+			}
+			Thread thread = new Thread(() -> serve(socket),
+					"SolverServer-" + socket.getRemoteSocketAddress());
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/*
+	 * Read and handle requests from one connection until it closes.
+	 */
+	private void serve(Socket socket) {
+		Connection connection;
+		try {
+			connection = new Connection(socket);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		connections.add(connection);
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(
+				socket.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while (!closed && (line = in.readLine()) != null)
+				if (!handle(connection, line))
+					break;
+		} catch (SocketException e) {
+			// closed by either side
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			for (Job job : connection.jobs.values())
+				job.cancel();
+			connection.close();
+			connections.remove(connection);
+		}
+	}
+
+	/*
+	 * Returns false to close the connection.
+	 */
+	private boolean handle(Connection connection, String line) {
+		String[] fields = line.split("\t");
+		switch (fields[0]) {
+		case "SOLVE":
+			if (fields.length != 4) {
+				connection.send("ERROR", "Usage: SOLVE id budget-ms board");
+				return true;
+			}
+			String id = fields[1];
+			long budget;
+			RuneMap map;
+			try {
+				budget = Long.parseLong(fields[2]);
+				map = RuneMap.parse(fields[3]);
+			} catch (IllegalArgumentException e) {
+				connection.send("ERROR", id + ": " + e.getMessage());
+				return true;
+			}
+			if (budget <= 0) {
+				connection.send("ERROR", id + ": budget <= 0");
+				return true;
+			}
+			Job job = new Job(connection, id, map, budget);
+			if (connection.jobs.putIfAbsent(id, job) != null) {
+				connection.send("ERROR", id + ": duplicate id");
+				return true;
+			}
+			// respond before a worker may respond RESULT
+			synchronized (connection) {
+				if (queue.offer(job)) {
+					connection.send("QUEUED", id, Integer.toString(queue.size()));
+				} else {
+					connection.jobs.remove(id);
+					connection.send("BUSY", id);
+				}
+			}
+			return true;
+		case "CANCEL":
+			if (fields.length != 2) {
+				connection.send("ERROR", "Usage: CANCEL id");
+				return true;
+			}
+			Job cancelled = connection.jobs.get(fields[1]);
+			if (cancelled != null)
+				cancelled.cancel();
+			return true;
+		case "STATS":
+			long[] p = getLatencyPercentiles(0.5, 0.9, 0.99, 1);
+			connection.send("STATS", Integer.toString(queue.size()),
+					Integer.toString(running.get()),
+					Long.toString(completed.get()), Long.toString(p[0]),
+					Long.toString(p[1]), Long.toString(p[2]),
+					Long.toString(p[3]));
+			return true;
+		case "QUIT":
+			return false;
+		default:
+			connection.send("ERROR", "Unknown request: " + fields[0]);
+			return true;
+		}
+	}
+
+	private void work() {
+		PathFinder finder = factory.get();
+		while (!closed) {
+			Job job;
+			try {
+				job = queue.poll(100, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (job == null)
+				continue;
+			running.incrementAndGet();
+			try {
+				solve(job, finder);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				job.connection.jobs.remove(job.id, job);
+				job.connection.send("ERROR", job.id + ": " + e);
+			} finally {
+				running.decrementAndGet();
+			}
+		}
+	}
+
+	/*
+	 * Search the board of the job. The worker returns as soon as the search
+	 * does; DONE is sent by the ResultSender after the last RESULT, so a
+	 * client that stops reading holds up a sender rather than a worker.
+	 */
+	private void solve(Job job, PathFinder finder) {
+		if (job.isCancelled()) {
+			finish(job, "cancelled");
+			return;
+		}
+		if (job.token.isCancelled()) {
+			finish(job, "expired");
+			return;
+		}
+		ResultPublisher publisher = new ResultPublisher(job.map, senders);
+		ResultSender sender = new ResultSender(job);
+		publisher.subscribe(sender);
+		SearchResult result;
+		try {
+			result = finder.findPath(job.map, job.token, publisher::publish);
+		} catch (RuntimeException | Error e) {
+			publisher.closeExceptionally(e);
+			throw e;
+		}
+		sender.status = job.isCancelled() ? "cancelled"
+				: result.isOptimal() ? "optimal"
+						: result.isComplete() ? "complete" : "timeout";
+		publisher.close();
+	}
+
+	/*
+	 * Send DONE and forget the job, so that its ID may be reused.
+	 */
+	private void finish(Job job, String status) {
+		long latency = System.nanoTime() - job.received;
+		recordLatency(latency);
+		job.connection.jobs.remove(job.id, job);
+		job.connection.send("DONE", job.id, status,
+				Long.toString(TimeUnit.NANOSECONDS.toMillis(latency)));
+	}
+
+	private int countCombo(RuneMap finalMap) {
+		return counter.countCombo(finalMap.toMutable()).size();
+	}
+
+	private void recordLatency(long nanos) {
+		synchronized (latencies) {
+			latencies[(int) (completed.getAndIncrement() % LATENCY_SAMPLES)] = nanos;
+		}
+	}
+
+	/**
+	 * Returns the number of boards waiting in the queue.
+	 *
+	 * @return the queue depth
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Returns percentiles of the latency, from receiving to finishing, of the
+	 * last boards finished, at most 1024 of them.
+	 *
+	 * @param fractions
+	 *            the percentiles as fractions in <code>[0, 1]</code>
+	 * @return the latencies in milliseconds; all zeros if no board has
+	 *         finished
+	 */
+	public long[] getLatencyPercentiles(double... fractions) {
+		long[] samples;
+		synchronized (latencies) {
+			samples = Arrays.copyOf(latencies,
+					(int) Math.min(completed.get(), LATENCY_SAMPLES));
+		}
+		Arrays.sort(samples);
+		long[] result = new long[fractions.length];
+		if (samples.length == 0)
+			return result;
+		for (int i = 0; i < fractions.length; i++) {
+			int index = (int) Math.ceil(fractions[i] * samples.length) - 1;
+			index = Math.max(0, Math.min(samples.length - 1, index));
+			result[i] = TimeUnit.NANOSECONDS.toMillis(samples[index]);
+		}
+		return result;
+	}
+
+	/*
+	 * The same as the batch solver: single-threaded IDA* as boards are
+	 * already solved concurrently. The cost function is bound to each board.
+	 */
+	private static PathFinder createPathFinder() {
+		List<PathRestriction> list = new ArrayList<>();
+		list.add(new UTurnRestriction());
+		list.add(new IdenticalStartRestriction());
+		list.add(new DiagonalMoveRestriction());
+		return new IDAStarPathFinder(new LongComboCounter(),
+				CompositeRestriction.composite(list), new ComboCostFunction(3));
+	}
+
+	/*
+	 * A client; responses are sent atomically, one line each.
+	 */
+	private static final class Connection {
+		private final Socket socket;
+		private final PrintWriter out;
+		private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+		private Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.out = new PrintWriter(new OutputStreamWriter(
+					socket.getOutputStream(), StandardCharsets.UTF_8));
+		}
+
+		private synchronized void send(String... fields) {
+			out.print(String.join("\t", fields));
+			out.print('\n');
+			out.flush();
+		}
+
+		private void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/*
+	 * Sends the results of a job as fast as the client reads them, then DONE;
+	 * results found meanwhile are coalesced, so a slow client never holds up
+	 * the search.
+	 */
+	private final class ResultSender implements ResultPublisher.Subscriber {
+		private final Job job;
+		private ResultPublisher.Subscription subscription;
+		// set before the publisher is closed
+		private volatile String status;
+
+		private ResultSender(Job job) {
+			this.job = job;
+		}
+
+		@Override
+		public void onSubscribe(ResultPublisher.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(1);
+		}
+
+		@Override
+		public void onNext(Improvement item) {
+			Path path = item.getPath();
+			job.connection.send("RESULT", job.id,
+					Integer.toString(countCombo(item.getFinalMap())),
+					Integer.toString(path.getDirections().size()),
+					path.toString());
+			subscription.request(1);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			// the worker has reported the error
+		}
+
+		@Override
+		public void onComplete() {
+			finish(job, status);
+		}
+	}
+
+	/*
+	 * A board received; its token runs out at the deadline, and cancelling
+	 * stops its search whether queued, starting or running.
+	 */
+	private static final class Job {
+		private final Connection connection;
+		private final String id;
+		private final RuneMap map;
+		private final long received;
+		private final CancellationToken token;
+		private volatile boolean cancelled;
+
+		private Job(Connection connection, String id, RuneMap map, long budget) {
+			this.connection = connection;
+			this.id = id;
+			this.map = map;
+			this.received = System.nanoTime();
+			this.token = new CancellationToken(Duration.ofMillis(budget));
+		}
+
+		private void cancel() {
+			cancelled = true;
+			token.cancel();
+		}
+
+		private boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	/**
+	 * Run the server with command line arguments until killed.
+	 *
+	 * @param args
+	 *            <code>[-p port] [-w workers] [-q queue-capacity]</code>
+	 */
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		int port = 0;
+		int workers = Runtime.getRuntime().availableProcessors();
+		int queueCapacity = 64;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-p":
+					port = Integer.parseInt(args[++i]);
+					break;
+				case "-w":
+					workers = Integer.parseInt(args[++i]);
+					break;
+				case "-q":
+					queueCapacity = Integer.parseInt(args[++i]);
+					break;
+				default:
+					throw new IllegalArgumentException(args[i]);
+				}
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println("Usage: SolverServer [-p port] [-w workers] [-q queue-capacity]");
+			System.exit(2);
+			return;
+		}
+
+		SolverServer server = new SolverServer(port, workers, queueCapacity);
+		server.start();
+		System.out.println("Listening on " + InetAddress.getLoopbackAddress()
+				.getHostAddress() + ":" + server.getPort());
+		Thread.currentThread().join();
+	}
+}
@@ -7,7 +7,9 @@ import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -15,14 +17,16 @@ import javax.swing.JLabel;
 import javax.swing.JLayeredPane;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.SwingWorker;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
-import tosram.Path;
 import tosram.RuneMap;
+import tosram.algorithm.CancellationToken;
+import tosram.algorithm.Improvement;
 import tosram.algorithm.LongComboCounter;
-import tosram.algorithm.MaxComboCalculator;
-import tosram.algorithm.PathFinder;
 import tosram.algorithm.PathRestriction;
+import tosram.algorithm.ResultPublisher;
+import tosram.algorithm.SearchStatistics;
 import tosram.algorithm.idastar.ComboCostFunction;
 import tosram.algorithm.idastar.IDAStarPathFinder;
 import tosram.algorithm.path.CompositeRestriction;
@@ -42,6 +46,7 @@ public class MainFrame extends JFrame {
 	private static final String STATUS_EDITTING = "Editting";
 	private static final String STATUS_COMPUTING = "Computing";
 	private static final String STATUS_ERROR = "Error";
+	private static final String STATUS_OPTIMAL = "Optimal";
 
 	private static final String BUTTON_EDIT = "Edit";
 	private static final String BUTTON_FINISH = "Finish";
@@ -50,6 +55,7 @@ public class MainFrame extends JFrame {
 	private static final String BUTTON_SETTINGS = "Settings";
 
 	private JLabel lbStatus;
+	private JLabel lbStatistics;
 	private RuneMapTable tbStones;
 	private PathPanel pnPath;
 	private JButton btEdit;
@@ -58,7 +64,15 @@ public class MainFrame extends JFrame {
 	private JButton btSettings;
 
 	private RuneMap runeMap;
-	private PathFinder pathFinder;
+	private final IDAStarPathFinder pathFinder = createPathFinder();
+	private CancellationToken token;
+	private final Executor resultExecutor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "Results");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private SearchStatistics statistics;
+	private Timer statisticsTimer;
 
 	public MainFrame() {
 		super("Tower of Savior Runestone Auto Mover");
@@ -106,8 +120,16 @@ public class MainFrame extends JFrame {
 			runeMap = tbStones.getRuneMap();
 		}
 		{
+			JPanel southPanel = new JPanel(new BorderLayout());
+			pnMain.add(southPanel, BorderLayout.SOUTH);
+
+			lbStatistics = new JLabel(" ");
+			southPanel.add(lbStatistics, BorderLayout.NORTH);
+			lbStatistics.setHorizontalAlignment(JLabel.CENTER);
+			statisticsTimer = new Timer(250, e -> updateStatistics());
+
 			JPanel buttonsPanel = new JPanel();
-			pnMain.add(buttonsPanel, BorderLayout.SOUTH);
+			southPanel.add(buttonsPanel, BorderLayout.CENTER);
 
 			btEdit = new JButton(BUTTON_EDIT);
 			buttonsPanel.add(btEdit);
@@ -166,57 +188,119 @@ public class MainFrame extends JFrame {
 		pnPath.setPath(null);
 		lbStatus.setText(STATUS_COMPUTING);
 
-		pathFinder = createPathFinder();
+		token = new CancellationToken();
+		statistics = pathFinder.getStatistics();
+		statisticsTimer.start();
+
+		CancellationToken token = this.token;
+		ResultPublisher publisher = new ResultPublisher(runeMap, resultExecutor);
+		publisher.subscribe(new ComputationView(token));
+		Thread thread = new Thread(() -> pathFinder.findPath(token, publisher), "Computation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void finishComputing() {
+		statisticsTimer.stop();
+		updateStatistics();
+		btStop.setEnabled(false);
+		toggleEnabled(btEdit, btCompute, btSettings);
+	}
 
-		new ComputationWorker().execute();
+	private void updateStatistics() {
+		// transposition prunes only if searching with a table
+		boolean table = pathFinder.getTranspositionTable() != null;
+		String pruned = String.format(table ? "%,d/%,d/%,d" : "%,d/%,d", statistics.getRestrictionPrunes(),
+				statistics.getCostPrunes(), statistics.getTranspositionPrunes());
+		lbStatistics.setText(String.format("Limit %d, %,d nodes (%,.0f/s), pruned %s, combo %,d ms",
+				statistics.getLimit(), statistics.getNodes(), statistics.getNodesPerSecond(), pruned,
+				statistics.getComboTime(TimeUnit.MILLISECONDS)));
+		lbStatistics.setToolTipText("Pruned by restriction/cost" + (table ? "/transposition; " : "; ")
+				+ statistics.getComboCalls() + " combo evaluations");
 	}
 
-	private PathFinder createPathFinder() {
+	/*
+	 * Created once and reused by every computation; the cost function is bound
+	 * to each map searched.
+	 */
+	private static IDAStarPathFinder createPathFinder() {
 		List<PathRestriction> list = new ArrayList<>();
 		list.add(new UTurnRestriction());
 		list.add(new IdenticalStartRestriction());
 		list.add(new DiagonalMoveRestriction());
 		return new IDAStarPathFinder(new LongComboCounter(), CompositeRestriction.composite(list),
-				new ComboCostFunction(3, MaxComboCalculator.getMaxCombo(runeMap)));
+				new ComboCostFunction(3),
+				Runtime.getRuntime().availableProcessors(), 0);
 	}
 
+	/*
+	 * Compute stays disabled until the search has returned, as the finder
+	 * searches one map at a time; see finishComputing().
+	 */
 	private void stopComputing() {
 		if (btStop.isEnabled()) {
-			toggleEnabled(btEdit, btCompute, btStop, btSettings);
+			toggleEnabled(btStop);
 
-			pathFinder.stop();
+			token.cancel();
 		}
 	}
 
-	private class ComputationWorker extends SwingWorker<Void, Object[]> {
+	/*
+	 * Shows results on the EDT, requesting the next one only after showing
+	 * one, so that results found meanwhile are coalesced into the latest.
+	 * Callbacks of a computation no longer current are ignored.
+	 */
+	private class ComputationView implements ResultPublisher.Subscriber {
+		private final CancellationToken token;
+		private ResultPublisher.Subscription subscription;
+
+		private ComputationView(CancellationToken token) {
+			this.token = token;
+		}
+
+		private boolean isCurrent() {
+			return token == MainFrame.this.token;
+		}
+
+		@Override
+		public void onSubscribe(ResultPublisher.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(1);
+		}
+
 		@Override
-		protected Void doInBackground() {
-			pathFinder.findPath(runeMap, (path, message) -> publish(new Object[] { path, message }));
-			return null;
+		public void onNext(Improvement item) {
+			SwingUtilities.invokeLater(() -> {
+				if (!isCurrent())
+					return;
+				pnPath.setPath(item.getPath());
+				lbStatus.setText(item.getDescription());
+				tbStones.setRuneMap(item.getFinalMap());
+				repaint();
+				subscription.request(1);
+			});
 		}
 
 		@Override
-		protected void process(List<Object[]> chunks) {
-			Object[] pair = chunks.get(chunks.size() - 1);
-			Path path = (Path) pair[0];
-			String message = (String) pair[1];
-			pnPath.setPath(path);
-			lbStatus.setText(message);
-			tbStones.setRuneMap(Path.follow(runeMap, path));
-			repaint();
+		public void onError(Throwable throwable) {
+			throwable.printStackTrace();
+			SwingUtilities.invokeLater(() -> {
+				if (!isCurrent())
+					return;
+				finishComputing();
+				lbStatus.setText(STATUS_ERROR + ": " + throwable);
+			});
 		}
 
 		@Override
-		protected void done() {
-			stopComputing();
-			try {
-				get();
-			} catch (ExecutionException e) {
-				e.printStackTrace();
-				lbStatus.setText(STATUS_ERROR + ": " + e.getCause());
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
+		public void onComplete() {
+			SwingUtilities.invokeLater(() -> {
+				if (!isCurrent())
+					return;
+				finishComputing();
+				if (pathFinder.isOptimal())
+					lbStatus.setText(lbStatus.getText() + " (" + STATUS_OPTIMAL + ")");
+			});
 		}
 	}
 }
@@ -0,0 +1,71 @@
+package tosram.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import tosram.MutableRuneMap;
+import tosram.RuneMap;
+import tosram.RuneStone;
+
+/**
+ * Boards used by benchmarks.
+ * 
+ * @author johnchen902
+ */
+public class Boards {
+
+	/**
+	 * A 6x5 board without any combo.
+	 */
+	public static final String NO_COMBO = "FIRE EARTH WATER LIGHT DARK HEART/"
+			+ "WATER LIGHT DARK HEART FIRE EARTH/"
+			+ "FIRE EARTH WATER LIGHT DARK HEART/"
+			+ "WATER LIGHT DARK HEART FIRE EARTH/"
+			+ "FIRE EARTH WATER LIGHT DARK HEART";
+
+	/**
+	 * A 6x5 board with a single combo.
+	 */
+	public static final String SINGLE_COMBO = "FIRE FIRE FIRE LIGHT DARK HEART/"
+			+ "WATER LIGHT DARK HEART FIRE EARTH/"
+			+ "FIRE EARTH WATER LIGHT DARK HEART/"
+			+ "WATER LIGHT DARK HEART FIRE EARTH/"
+			+ "FIRE EARTH WATER LIGHT DARK HEART";
+
+	/**
+	 * A 6x5 board with 5 combo in 3 batches.
+	 */
+	public static final String CASCADE = "EARTH FIRE FIRE HEART HEART DARK/"
+			+ "FIRE FIRE FIRE HEART DARK DARK/"
+			+ "LIGHT LIGHT DARK LIGHT HEART HEART/"
+			+ "HEART DARK LIGHT LIGHT DARK EARTH/"
+			+ "DARK WATER WATER WATER LIGHT EARTH";
+
+	private Boards() {
+	}
+
+	/**
+	 * Generate random 6x5 boards of the six known stones.
+	 * 
+	 * @param seed
+	 *            the seed of the random number generator
+	 * @param count
+	 *            the number of boards
+	 * @return the boards
+	 */
+	public static List<RuneMap> corpus(long seed, int count) {
+		Random random = new Random(seed);
+		RuneStone[] stones = RuneStone.values();
+		List<RuneMap> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			MutableRuneMap map = new MutableRuneMap(6, 5);
+			for (int y = 0; y < 5; y++)
+				for (int x = 0; x < 6; x++)
+					map.setRuneStone(x, y,
+							stones[random.nextInt(RuneStone.UNKNOWN.ordinal())]);
+			list.add(new RuneMap(map));
+		}
+		return list;
+	}
+}
@@ -0,0 +1,84 @@
+package tosram.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tosram.BitboardRuneMap;
+import tosram.MutableRuneMap;
+import tosram.RuneMap;
+import tosram.algorithm.ComboBuffer;
+import tosram.algorithm.ComboCounter.Combo;
+import tosram.algorithm.LongComboCounter;
+import tosram.algorithm.MultiLongComboCounter;
+
+/**
+ * Benchmarks of {@link LongComboCounter}, and of {@link MultiLongComboCounter}
+ * on the same boards for comparison.
+ * 
+ * @author johnchen902
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ComboCounterBenchmark {
+
+	@Param({ "NO_COMBO", "SINGLE_COMBO", "CASCADE" })
+	public String board;
+
+	private LongComboCounter counter;
+	private MultiLongComboCounter multiLongCounter;
+	private MutableRuneMap mutable;
+	private BitboardRuneMap bitboard;
+	private ComboBuffer buffer, countOnly;
+
+	@Setup
+	public void setUp() throws ReflectiveOperationException {
+		String text = (String) Boards.class.getField(board).get(null);
+		counter = new LongComboCounter();
+		multiLongCounter = new MultiLongComboCounter();
+		mutable = RuneMap.parse(text).toMutable();
+		bitboard = new BitboardRuneMap(mutable);
+		buffer = new ComboBuffer();
+		countOnly = new ComboBuffer(false);
+	}
+
+	@Benchmark
+	public List<Combo> countComboMutable() {
+		return counter.countCombo(mutable);
+	}
+
+	@Benchmark
+	public List<Combo> countComboMultiLong() {
+		return multiLongCounter.countCombo(mutable);
+	}
+
+	@Benchmark
+	public List<Combo> countComboBitboard() {
+		return counter.countCombo(bitboard);
+	}
+
+	@Benchmark
+	public int countComboInto() {
+		return counter.countComboInto(bitboard, buffer);
+	}
+
+	@Benchmark
+	public int countComboCountOnly() {
+		return counter.countComboInto(bitboard, countOnly);
+	}
+}
@@ -0,0 +1,143 @@
+package tosram.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tosram.Path;
+import tosram.RuneMap;
+import tosram.algorithm.LongComboCounter;
+import tosram.algorithm.MaxComboCalculator;
+import tosram.algorithm.PathRestriction;
+import tosram.algorithm.idastar.ComboCostFunction;
+import tosram.algorithm.idastar.CostFunction;
+import tosram.algorithm.idastar.DistributionCostFunction;
+import tosram.algorithm.idastar.IDAStarPathFinder;
+import tosram.algorithm.path.CompositeRestriction;
+import tosram.algorithm.path.DiagonalMoveRestriction;
+import tosram.algorithm.path.IdenticalStartRestriction;
+import tosram.algorithm.path.UTurnRestriction;
+
+/**
+ * Nodes expanded by a single-threaded {@link IDAStarPathFinder} until the
+ * first path making all but <code>slack</code> of the maximum combo, with each
+ * {@link CostFunction}, over a fixed seeded corpus of boards. The
+ * <code>nodesPerBoard</code> counter is the number to compare; the time also shows
+ * what the better estimate costs per node. A search not reaching the target
+ * is stopped after <code>timeout</code> milliseconds.
+ * 
+ * @author johnchen902
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class CostFunctionBenchmark {
+
+	@Param({ "combo", "distribution" })
+	public String costFunction;
+
+	@Param({ "1" })
+	public int slack;
+
+	@Param({ "3000" })
+	public long timeout;
+
+	/**
+	 * Nodes expanded per board searched.
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Nodes {
+		private long nodes, boards;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			nodes = boards = 0;
+		}
+
+		public long nodesPerBoard() {
+			return boards == 0 ? 0 : nodes / boards;
+		}
+	}
+
+	private final LongComboCounter counter = new LongComboCounter();
+	private List<RuneMap> corpus;
+	private int next;
+	private ScheduledExecutorService timer;
+
+	@Setup
+	public void setUp() {
+		corpus = Boards.corpus(20150305L, 16);
+		timer = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	@TearDown
+	public void tearDown() {
+		timer.shutdownNow();
+	}
+
+	@Benchmark
+	public int nodesToFirstCombo(Nodes nodes) {
+		RuneMap map = corpus.get(next++ % corpus.size());
+		int target = MaxComboCalculator.getMaxCombo(map) - slack;
+		List<PathRestriction> list = new ArrayList<>();
+		list.add(new UTurnRestriction());
+		list.add(new IdenticalStartRestriction());
+		list.add(new DiagonalMoveRestriction());
+		IDAStarPathFinder finder = new IDAStarPathFinder(counter,
+				CompositeRestriction.composite(list), createCostFunction(map),
+				1, 0);
+		int[] found = new int[1];
+		ScheduledFuture<?> stopper = timer.schedule(finder::stop, timeout,
+				TimeUnit.MILLISECONDS);
+		try {
+			finder.findPath(map, (path, description) -> {
+				found[0] = Math.max(found[0], countCombo(map, path));
+				if (found[0] >= target)
+					finder.stop();
+			});
+		} finally {
+			stopper.cancel(false);
+		}
+		nodes.nodes += finder.getStatistics().getNodes();
+		nodes.boards++;
+		return found[0];
+	}
+
+	private CostFunction createCostFunction(RuneMap map) {
+		int maxCombo = MaxComboCalculator.getMaxCombo(map);
+		switch (costFunction) {
+		case "combo":
+			return new ComboCostFunction(3, maxCombo);
+		case "distribution":
+			return new DistributionCostFunction(3, maxCombo);
+		default:
+			throw new IllegalArgumentException(costFunction);
+		}
+	}
+
+	private int countCombo(RuneMap map, Path path) {
+		return counter.countCombo(Path.follow(map, path).toMutable()).size();
+	}
+}
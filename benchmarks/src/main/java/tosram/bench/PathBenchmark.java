@@ -0,0 +1,68 @@
+package tosram.bench;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tosram.Direction;
+import tosram.Path;
+import tosram.RuneMap;
+import tosram.algorithm.MaxComboCalculator;
+
+/**
+ * Benchmarks of {@link Path#follow(RuneMap, Path)} and
+ * {@link MaxComboCalculator#getMaxCombo(RuneMap)}.
+ * 
+ * @author johnchen902
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathBenchmark {
+
+	private RuneMap map;
+	private Path path;
+
+	@Setup
+	public void setUp() {
+		map = RuneMap.parse(Boards.CASCADE);
+		// a 20-move loop around the board starting from the top left corner
+		List<Direction> directions = new ArrayList<>();
+		for (int i = 0; i < 5; i++)
+			directions.add(Direction.EAST);
+		for (int i = 0; i < 4; i++)
+			directions.add(Direction.SOUTH);
+		for (int i = 0; i < 5; i++)
+			directions.add(Direction.WEST);
+		for (int i = 0; i < 4; i++)
+			directions.add(Direction.NORTH);
+		directions.add(Direction.EAST_SOUTH);
+		directions.add(Direction.EAST);
+		path = new Path(new Point(0, 0), directions);
+	}
+
+	@Benchmark
+	public RuneMap follow() {
+		return Path.follow(map, path);
+	}
+
+	@Benchmark
+	public int getMaxCombo() {
+		return MaxComboCalculator.getMaxCombo(map);
+	}
+}
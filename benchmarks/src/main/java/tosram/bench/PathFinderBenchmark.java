@@ -0,0 +1,147 @@
+package tosram.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tosram.Path;
+import tosram.RuneMap;
+import tosram.algorithm.LongComboCounter;
+import tosram.algorithm.MaxComboCalculator;
+import tosram.algorithm.PathRestriction;
+import tosram.algorithm.idastar.ComboCostFunction;
+import tosram.algorithm.idastar.IDAStarPathFinder;
+import tosram.algorithm.idastar.TranspositionTable;
+import tosram.algorithm.path.CompositeRestriction;
+import tosram.algorithm.path.DiagonalMoveRestriction;
+import tosram.algorithm.path.IdenticalStartRestriction;
+import tosram.algorithm.path.UTurnRestriction;
+
+/**
+ * Time for {@link IDAStarPathFinder} to find the first path making the
+ * specified number of combo, over a fixed seeded corpus of boards. A search
+ * not reaching the target is stopped after <code>timeout</code> milliseconds.
+ * With <code>tableMegabytes</code> positive, a {@link TranspositionTable} of
+ * that size is used, and the <code>hitsPerMille</code> counter shows how many
+ * lookups pruned a state.
+ * 
+ * @author johnchen902
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class PathFinderBenchmark {
+
+	@Param({ "5", "6" })
+	public int combo;
+
+	@Param({ "1" })
+	public int parallelism;
+
+	@Param({ "2000" })
+	public long timeout;
+
+	@Param({ "0", "16" })
+	public int tableMegabytes;
+
+	/**
+	 * Nodes expanded per board searched, and hits of the transposition table
+	 * per thousand lookups.
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Counters {
+		private long nodes, boards, hits, lookups;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			nodes = boards = hits = lookups = 0;
+		}
+
+		public long nodesPerBoard() {
+			return boards == 0 ? 0 : nodes / boards;
+		}
+
+		public long hitsPerMille() {
+			return lookups == 0 ? 0 : hits * 1000 / lookups;
+		}
+	}
+
+	private final LongComboCounter counter = new LongComboCounter();
+	private List<RuneMap> corpus;
+	private int next;
+	private ScheduledExecutorService timer;
+	private TranspositionTable table;
+
+	@Setup
+	public void setUp() {
+		corpus = Boards.corpus(20150305L, 16);
+		timer = Executors.newSingleThreadScheduledExecutor();
+		if (tableMegabytes > 0)
+			table = new TranspositionTable((long) tableMegabytes << 20);
+	}
+
+	@TearDown
+	public void tearDown() {
+		timer.shutdownNow();
+	}
+
+	@Benchmark
+	public int timeToFirstCombo(Counters counters) {
+		RuneMap map = corpus.get(next++ % corpus.size());
+		List<PathRestriction> list = new ArrayList<>();
+		list.add(new UTurnRestriction());
+		list.add(new IdenticalStartRestriction());
+		list.add(new DiagonalMoveRestriction());
+		IDAStarPathFinder finder = new IDAStarPathFinder(counter,
+				CompositeRestriction.composite(list), new ComboCostFunction(3,
+						MaxComboCalculator.getMaxCombo(map)), parallelism, 0);
+		finder.setTranspositionTable(table);
+		if (table != null)
+			table.resetCounters();
+		int[] found = new int[1];
+		ScheduledFuture<?> stopper = timer.schedule(finder::stop, timeout,
+				TimeUnit.MILLISECONDS);
+		try {
+			finder.findPath(map, (path, description) -> {
+				found[0] = Math.max(found[0], countCombo(map, path));
+				if (found[0] >= combo)
+					finder.stop();
+			});
+		} finally {
+			stopper.cancel(false);
+		}
+		counters.nodes += finder.getStatistics().getNodes();
+		counters.boards++;
+		if (table != null) {
+			counters.hits += table.getHits();
+			counters.lookups += table.getHits() + table.getMisses();
+		}
+		return found[0];
+	}
+
+	private int countCombo(RuneMap map, Path path) {
+		return counter.countCombo(Path.follow(map, path).toMutable()).size();
+	}
+}
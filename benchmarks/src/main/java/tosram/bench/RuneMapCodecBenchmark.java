@@ -0,0 +1,69 @@
+package tosram.bench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tosram.RuneMap;
+import tosram.RuneMapCodec;
+
+/**
+ * Benchmarks of the text and binary forms of {@link RuneMap} by
+ * {@link RuneMapCodec}.
+ * 
+ * @author johnchen902
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RuneMapCodecBenchmark {
+
+	private RuneMap map;
+	private String text;
+	private ByteBuffer buffer;
+
+	@Setup
+	public void setUp() {
+		map = RuneMap.parse(Boards.CASCADE);
+		text = map.toString();
+		buffer = ByteBuffer.allocateDirect(RuneMapCodec.encodedLength(
+				map.getWidth(), map.getHeight()));
+		RuneMapCodec.write(map, buffer);
+	}
+
+	@Benchmark
+	public RuneMap parse() {
+		return RuneMapCodec.parse(text);
+	}
+
+	@Benchmark
+	public String format() {
+		return map.toString();
+	}
+
+	@Benchmark
+	public ByteBuffer write() {
+		buffer.clear();
+		RuneMapCodec.write(map, buffer);
+		return buffer;
+	}
+
+	@Benchmark
+	public RuneMap read() {
+		buffer.clear();
+		return RuneMapCodec.read(buffer);
+	}
+}